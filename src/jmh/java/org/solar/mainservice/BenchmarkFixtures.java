@@ -0,0 +1,110 @@
+package org.solar.mainservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.solar.mainservice.ai.dto.AiBoostsDTO;
+import org.solar.mainservice.ai.dto.AiPredictResponse;
+import org.solar.mainservice.ai.dto.AiWindowStatsDTO;
+import org.solar.mainservice.metrics.PipelineMetrics;
+import org.solar.mainservice.model.TelemetryReading;
+import org.solar.mainservice.safety.SafetyGuard;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Datos de ejemplo compartidos por los benchmarks (una lectura típica del simulador y una predicción v2). */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {}
+
+    public static TelemetryReading sampleReading() {
+        TelemetryReading r = new TelemetryReading();
+        r.setSessionId("bench-session");
+        r.setPanelId("panel-1");
+        r.setTimestamp(LocalDateTime.of(2025, 1, 1, 12, 0));
+        r.setTemperature(31.5);
+        r.setHumidity(42.0);
+        r.setDustLevel(0.27);
+        r.setPowerOutput(281.4);
+        r.setVibration(0.01);
+        r.setMicroFractureRisk(0.02);
+        r.setLocation(new TelemetryReading.GeoLocation(4.61, -74.08));
+        r.setState(new TelemetryReading.State("cleaning", LocalDateTime.of(2025, 1, 1, 11, 59), "ai"));
+        r.setParams(new TelemetryReading.Params(0.35, 1200.0, 1.8, 0.4, 0.6, 0.5, 0.1, 0.3, 0.2, 1.0, 300.0, 2.0, 50.0));
+        r.setDrivers(new TelemetryReading.Drivers(3.2, 48.0, 0.0, 42.0, 31.5));
+        r.setGrid(new TelemetryReading.Grid(new TelemetryReading.Grid.Position(3, 7), 0.31, 0.22, 0.09, 2, 0.64, 0.28, 0.55));
+        return r;
+    }
+
+    /** Frame tal como lo manda el simulador a POST /api/telemetry (alias snake_case incluidos). */
+    public static String sampleReadingJson() {
+        return """
+                {"sessionId":"bench-session","panelId":"panel-1","timestamp":"2025-01-01T12:00:00.123",
+                 "temperature":31.5,"humidity":42.0,"dust_level":0.27,"power_output":281.4,
+                 "vibration":0.01,"micro_fracture_risk":0.02,
+                 "location":{"lat":4.61,"lng":-74.08},
+                 "state":{"mode":"cleaning","lastChangeTs":"2025-01-01T11:59:00","cause":"ai"},
+                 "params":{"robotSpeed":0.35,"brushRpm":1200.0,"waterPressure":1.8,"detergentFlowRate":0.4,
+                           "vacuumPower":0.6,"turnRadius":0.5,"passOverlap":0.1,"pathSpacing":0.3,
+                           "squeegeePressure":0.2,"dwellTime":1.0,"rpmRampRate":300.0,"maxWaterPerMin":2.0,
+                           "maxEnergyPerMin":50.0},
+                 "drivers":{"wind":3.2,"pm10":48.0,"rain":0.0,"humidity":42.0,"temp":31.5},
+                 "grid":{"position":{"row":3,"col":7},"dust_local_before":0.31,"dust_local_after":0.22,
+                         "delta_local":0.09,"passes":2,"coverage":0.64,"dust_mean":0.28,"dust_max":0.55},
+                 "extra":"ignored"}
+                """;
+    }
+
+    /** Predicción que recorre todo handlePrediction: comandos, anti-regresión activa y boosts. */
+    public static AiPredictResponse samplePrediction() {
+        Map<String, Object> proposed = new LinkedHashMap<>();
+        proposed.put("brushRpm", 0.7);
+        proposed.put("waterFlow", 0.5);
+        proposed.put("pressure", 0.6);
+        proposed.put("passes", 0.4);
+        proposed.put("detergentPct", 0.3);
+        proposed.put("dwellSec", 0.5);
+        proposed.put("route", Map.of("keep", 0.6, "zigzag", 0.3, "spiral", 0.1));
+
+        AiPredictResponse pr = new AiPredictResponse();
+        pr.setSchemaVersion("2");
+        pr.setSessionId("bench-session");
+        pr.setPredictedEfficiencyLoss(0.12);
+        pr.setRecommendedCleaningFrequency("now");
+        pr.setAlerts(List.of());
+        pr.setProposedCommands(proposed);
+        pr.setExplain("dust trending up");
+        pr.setWindow(new AiWindowStatsDTO(24.0, 22.5));
+        pr.setBoosts(new AiBoostsDTO(1, 1, 0.05));
+        pr.setSource("ai");
+        return pr;
+    }
+
+    public static SafetyGuard.Limits sampleLimits() {
+        return SafetyGuard.Limits.builder()
+                .rpmMin(500).rpmMax(1200)
+                .flowMin(0.10).flowMax(0.60)
+                .pressMin(1.2).pressMax(2.5)
+                .detPctMin(0.02).detPctMax(0.06)
+                .dwellMin(2).dwellMax(8)
+                .passesMin(1).passesMax(3)
+                .maxDeltaRpm(150)
+                .build();
+    }
+
+    /** Métricas reales en un registro en memoria: el costo de los timers entra en la medición. */
+    public static PipelineMetrics metrics() {
+        return new PipelineMetrics(new SimpleMeterRegistry());
+    }
+
+    /** Los componentes leen su config con @Value; fuera de Spring se fija a mano. */
+    public static void setField(Object target, String name, Object value) {
+        Field f = ReflectionUtils.findField(target.getClass(), name);
+        if (f == null) throw new IllegalArgumentException(target.getClass().getSimpleName() + " has no field " + name);
+        ReflectionUtils.makeAccessible(f);
+        ReflectionUtils.setField(f, target, value);
+    }
+}
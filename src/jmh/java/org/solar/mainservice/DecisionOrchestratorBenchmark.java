@@ -0,0 +1,110 @@
+package org.solar.mainservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.solar.mainservice.ai.dto.AiPredictResponse;
+import org.solar.mainservice.control.CommandSuppressor;
+import org.solar.mainservice.control.ControlPolicyHolder;
+import org.solar.mainservice.control.ControllerStateStore;
+import org.solar.mainservice.control.ParamVector;
+import org.solar.mainservice.dto.StateChangeEventDTO;
+import org.solar.mainservice.safety.SafetyGuard;
+import org.solar.mainservice.service.SimulatorRelay;
+import org.solar.mainservice.websocket.NativeWsHub;
+import org.solar.mainservice.websocket.TelemetryDeltaEncoder;
+import org.solar.mainservice.websocket.WebSocketNotifier;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * handlePrediction completo (política, SafetyGuard, estado por robot, eventos WS serializados) con el
+ * relay respondiendo al instante y un canal STOMP que descarta. Los logs quedan en WARN (src/jmh/resources),
+ * así que no se mide el costo de los [ORCH] en INFO. Correr con -Djmh.include=DecisionOrchestrator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecisionOrchestratorBenchmark {
+
+    private DecisionOrchestrator relaying;
+    private DecisionOrchestrator suppressing;
+    private AiPredictResponse prediction;
+    private ParamVector prevParams;
+
+    @Setup
+    public void setup() {
+        prediction = BenchmarkFixtures.samplePrediction();
+        prevParams = ParamVector.fromReading(BenchmarkFixtures.sampleReading().getParams());
+
+        // sin supresión: cada decisión llega al relay
+        relaying = orchestrator(false);
+        // con supresión: desde la segunda decisión los params son iguales y no se reenvían
+        suppressing = orchestrator(true);
+        suppressing.handlePrediction("bench-session", "panel-1", "AUTO", prevParams, prediction, true).block();
+    }
+
+    @Benchmark
+    public void handlePredictionRelayed() {
+        relaying.handlePrediction("bench-session", "panel-1", "AUTO", prevParams, prediction, true).block();
+    }
+
+    @Benchmark
+    public void handlePredictionSuppressed() {
+        suppressing.handlePrediction("bench-session", "panel-1", "AUTO", prevParams, prediction, true).block();
+    }
+
+    /** Solo el evento ai_prediction (applyControl=false). */
+    @Benchmark
+    public void handlePredictionNotifyOnly() {
+        relaying.handlePrediction("bench-session", "panel-1", "AUTO", prevParams, prediction, false).block();
+    }
+
+    private static DecisionOrchestrator orchestrator(boolean suppress) {
+        SimulatorRelay relay = new SimulatorRelay(null, null, null) {
+            @Override
+            public Mono<Map<String, Object>> relay(StateChangeEventDTO evt) {
+                return Mono.just(Map.of("ok", true));
+            }
+        };
+
+        MessageChannel sink = (message, timeout) -> true;
+        SimpMessagingTemplate template = new SimpMessagingTemplate(sink);
+        template.setMessageConverter(new MappingJackson2MessageConverter());
+        TelemetryDeltaEncoder deltas = new TelemetryDeltaEncoder();
+        WebSocketNotifier notifier = new WebSocketNotifier(template, deltas, new NativeWsHub(new ObjectMapper(), deltas),
+                BenchmarkFixtures.metrics());
+
+        ControlPolicyHolder policies = new ControlPolicyHolder(new StandardEnvironment());
+        policies.reload();
+
+        ControllerStateStore state = new ControllerStateStore();
+        BenchmarkFixtures.setField(state, "idleTtlMs", 600_000L);
+        BenchmarkFixtures.setField(state, "maxEntries", 10_000);
+
+        CommandSuppressor suppressor = new CommandSuppressor(new StandardEnvironment());
+        BenchmarkFixtures.setField(suppressor, "enabled", suppress);
+        BenchmarkFixtures.setField(suppressor, "refreshMs", 3_600_000L);
+        // sin init(): epsilons en 0, alcanza porque la decisión se repite idéntica
+
+        return new DecisionOrchestrator(relay, notifier, new SafetyGuard(), policies, state, suppressor,
+                BenchmarkFixtures.metrics());
+    }
+}
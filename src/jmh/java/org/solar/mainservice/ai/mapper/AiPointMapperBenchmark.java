@@ -0,0 +1,65 @@
+package org.solar.mainservice.ai.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.solar.mainservice.BenchmarkFixtures;
+import org.solar.mainservice.ai.dto.AiPointDTO;
+import org.solar.mainservice.model.TelemetryReading;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura → punto de IA. {@code toAiPoint} es por lectura; {@code toWindow} es lo que paga
+ * cada predicción al armar la ventana completa. Correr con -Djmh.include=AiPointMapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AiPointMapperBenchmark {
+
+    @Param({"60"})
+    private int windowSize;
+
+    private final AiPointMapper mapper = new AiPointMapper();
+
+    private TelemetryReading reading;
+    private List<TelemetryReading> window;
+
+    @Setup
+    public void setup() {
+        reading = BenchmarkFixtures.sampleReading();
+        window = new ArrayList<>(windowSize);
+        for (int i = 0; i < windowSize; i++) {
+            TelemetryReading r = BenchmarkFixtures.sampleReading();
+            r.setTimestamp(r.getTimestamp().plusSeconds(i));
+            r.setDustLevel(0.2 + i * 0.001);
+            window.add(r);
+        }
+    }
+
+    @Benchmark
+    public AiPointDTO toAiPoint() {
+        return mapper.toAiPoint(reading);
+    }
+
+    @Benchmark
+    public List<AiPointDTO> toWindow() {
+        List<AiPointDTO> out = new ArrayList<>(window.size());
+        for (TelemetryReading r : window) out.add(mapper.toAiPoint(r));
+        return out;
+    }
+}
@@ -0,0 +1,119 @@
+package org.solar.mainservice.control;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Params de una decisión: mapas con claves String (camino anterior, reproducido aquí como referencia)
+ * vs ParamVector. Correr con -Djmh.include=ParamVector; gc.alloc.rate.norm da los bytes/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParamVectorBenchmark {
+
+    private static final Set<String> KNOWN_PARAMS = Set.of(
+            "robotSpeed", "brushRpm", "waterPressure", "detergentFlowRate", "vacuumPower",
+            "turnRadius", "passOverlap", "pathSpacing", "squeegeePressure", "dwellTime",
+            "rpmRampRate", "maxWaterPerMin", "maxEnergyPerMin");
+
+    private Map<String, Object> externalParams;
+
+    @Setup
+    public void setup() {
+        externalParams = new LinkedHashMap<>();
+        externalParams.put("brush_rpm", 1180.0);
+        externalParams.put("water_pressure", "2.1");
+        externalParams.put("robotSpeed", 0.4);
+        externalParams.put("detergent_flow_rate", 0.03);
+        externalParams.put("dwellTime", 4);
+    }
+
+    /** nextParams del orquestador → body del relay, con mapas. */
+    @Benchmark
+    public Map<String, Object> decisionWithMaps() {
+        Map<String, Object> next = new HashMap<>();
+        next.put("brushRpm", 1180.0);
+        next.put("waterPressure", 2.1);
+        next.put("waterFlow", 0.9);
+        next.put("detergentFlowRate", 0.03 * 0.9);
+        next.put("robotSpeed", 0.4);
+        next.put("passOverlap", 0.15);
+        next.put("dwellTime", 4);
+        next.put("passes", 2);
+        Object v = next.get("brushRpm");
+        if (v instanceof Number n && n.doubleValue() < 1200.0) next.put("brushRpm", 1200.0);
+        return legacyCoerce(next);
+    }
+
+    /** Mismo camino con ParamVector; el mapa se arma solo en el borde JSON. */
+    @Benchmark
+    public Map<String, Object> decisionWithVector() {
+        ParamVector next = new ParamVector()
+                .set(Param.BRUSH_RPM, 1180.0)
+                .set(Param.WATER_PRESSURE, 2.1)
+                .set(Param.WATER_FLOW, 0.9)
+                .set(Param.DETERGENT_FLOW_RATE, 0.03 * 0.9)
+                .set(Param.ROBOT_SPEED, 0.4)
+                .set(Param.PASS_OVERLAP, 0.15)
+                .set(Param.DWELL_TIME, 4)
+                .set(Param.PASSES, 2);
+        next.raiseTo(Param.BRUSH_RPM, 1200.0);
+        return next.toSimulatorMap();
+    }
+
+    /** Params externos (REST) con snake_case y strings: normalizeKey + boxing vs tabla de aliases. */
+    @Benchmark
+    public Map<String, Object> coerceExternalWithMaps() {
+        return legacyCoerce(externalParams);
+    }
+
+    @Benchmark
+    public Map<String, Object> coerceExternalWithVector() {
+        return ParamVector.fromMap(externalParams).toSimulatorMap();
+    }
+
+    private static Map<String, Object> legacyCoerce(Map<String, Object> src) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        src.forEach((k, v) -> {
+            String key = legacyNormalizeKey(k);
+            if (!KNOWN_PARAMS.contains(key)) return;
+            Number val = v instanceof Number n ? (Number) n.doubleValue()
+                    : v instanceof String s ? Double.valueOf(s) : null;
+            if (val != null) out.put(key, val);
+        });
+        return out;
+    }
+
+    private static String legacyNormalizeKey(String raw) {
+        String k = raw.trim();
+        if (k.equalsIgnoreCase("brushRPM")) return "brushRpm";
+        if (k.contains("_")) {
+            String[] parts = k.toLowerCase(Locale.ROOT).split("_");
+            StringBuilder sb = new StringBuilder(parts[0]);
+            for (int i = 1; i < parts.length; i++) {
+                sb.append(parts[i].substring(0, 1).toUpperCase()).append(parts[i].substring(1));
+            }
+            k = sb.toString();
+        }
+        return k;
+    }
+}
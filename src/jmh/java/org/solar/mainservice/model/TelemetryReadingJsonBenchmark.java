@@ -0,0 +1,77 @@
+package org.solar.mainservice.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.solar.mainservice.BenchmarkFixtures;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deserialización del cuerpo de POST /api/telemetry y /api/telemetry/batch, con un ObjectMapper
+ * configurado como el de Spring Boot (jsr310, sin fallar por campos desconocidos).
+ * Correr con -Djmh.include=TelemetryReadingJson.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TelemetryReadingJsonBenchmark {
+
+    @Param({"50"})
+    private int batchSize;
+
+    private ObjectMapper mapper;
+    private ObjectReader singleReader;
+    private ObjectReader batchReader;
+    private byte[] single;
+    private byte[] batch;
+
+    @Setup
+    public void setup() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        singleReader = mapper.readerFor(TelemetryReading.class);
+        batchReader = mapper.readerForListOf(TelemetryReading.class);
+
+        String json = BenchmarkFixtures.sampleReadingJson();
+        single = json.getBytes(StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < batchSize; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(json);
+        }
+        batch = sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Como lo hace el conversor HTTP: mapper.readValue sobre los bytes del cuerpo. */
+    @Benchmark
+    public TelemetryReading readSingle() throws Exception {
+        return mapper.readValue(single, TelemetryReading.class);
+    }
+
+    /** Con ObjectReader precalculado (sin resolver el tipo en cada llamada). */
+    @Benchmark
+    public TelemetryReading readSingleWithReader() throws Exception {
+        return singleReader.readValue(single);
+    }
+
+    @Benchmark
+    public List<TelemetryReading> readBatch() throws Exception {
+        return batchReader.readValue(batch);
+    }
+}
@@ -0,0 +1,89 @@
+package org.solar.mainservice.safety;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.solar.mainservice.BenchmarkFixtures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proyección 0..1 → unidades y anti-regresión, tal como las llama el orquestador en cada predicción.
+ * Correr con -Djmh.include=SafetyGuard.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SafetyGuardBenchmark {
+
+    private final SafetyGuard guard = new SafetyGuard();
+
+    private Map<String, Object> proposed;
+    private SafetyGuard.Limits limits;
+    private SafetyGuard.Commands prev;
+    private SafetyGuard.Commands projected;
+
+    @Setup
+    public void setup() {
+        proposed = BenchmarkFixtures.samplePrediction().getProposedCommands();
+        limits = BenchmarkFixtures.sampleLimits();
+        // prev lejos de la propuesta para que entre el rate limit de rpm
+        prev = SafetyGuard.Commands.builder()
+                .brushRpm(700).waterFlowLpm(0.3).nozzlePressureBar(1.8)
+                .passes(2).detergentPct(0.03).route("keep").dwellSec(4)
+                .build();
+        projected = guard.projectSafe(proposed, limits, prev, new ArrayList<>());
+    }
+
+    @Benchmark
+    public SafetyGuard.Commands projectSafe() {
+        return guard.projectSafe(proposed, limits, prev, new ArrayList<>());
+    }
+
+    /** Ventana sucia y sin mejora: aplica el boost (incluye el String.format de la nota). */
+    @Benchmark
+    public SafetyGuard.Commands antiRegressionBoost() {
+        return guard.antiRegression(copy(projected), limits, 24.0, 22.5, 10.0, 5.0, new ArrayList<>());
+    }
+
+    /** Ventana ya en objetivo: solo el chequeo. */
+    @Benchmark
+    public SafetyGuard.Commands antiRegressionNoop() {
+        return guard.antiRegression(copy(projected), limits, 9.0, 8.0, 10.0, 5.0, new ArrayList<>());
+    }
+
+    /** Referencia: costo de la copia que usan los benchmarks de antiRegression (que muta sus Commands). */
+    @Benchmark
+    public SafetyGuard.Commands copyOnly() {
+        return copy(projected);
+    }
+
+    @Benchmark
+    public List<String> projectAndAntiRegression() {
+        List<String> notes = new ArrayList<>();
+        SafetyGuard.Commands c = guard.projectSafe(proposed, limits, prev, notes);
+        guard.antiRegression(c, limits, 24.0, 22.5, 10.0, 5.0, notes);
+        return notes;
+    }
+
+    private static SafetyGuard.Commands copy(SafetyGuard.Commands c) {
+        return SafetyGuard.Commands.builder()
+                .brushRpm(c.getBrushRpm()).waterFlowLpm(c.getWaterFlowLpm())
+                .nozzlePressureBar(c.getNozzlePressureBar()).passes(c.getPasses())
+                .detergentPct(c.getDetergentPct()).route(c.getRoute()).dwellSec(c.getDwellSec())
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+package org.solar.mainservice.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.solar.mainservice.control.Param;
+import org.solar.mainservice.control.ParamVector;
+import org.solar.mainservice.dto.StateChangeEventDTO;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Params de un param_change hacia el body del simulador: ya tipados (orquestador) vs mapa externo
+ * (REST, con snake_case, strings y details.params). Correr con -Djmh.include=SimulatorRelay.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulatorRelayBenchmark {
+
+    private StateChangeEventDTO typed;
+    private StateChangeEventDTO external;
+
+    @Setup
+    public void setup() {
+        typed = new StateChangeEventDTO();
+        typed.setType("param_change");
+        typed.setParamsVector(new ParamVector()
+                .set(Param.BRUSH_RPM, 1180.0)
+                .set(Param.WATER_PRESSURE, 2.1)
+                .set(Param.WATER_FLOW, 0.9)
+                .set(Param.DETERGENT_FLOW_RATE, 0.027)
+                .set(Param.ROBOT_SPEED, 0.4)
+                .set(Param.PASS_OVERLAP, 0.15)
+                .set(Param.DWELL_TIME, 4)
+                .set(Param.PASSES, 2));
+
+        Map<String, Object> target = new LinkedHashMap<>();
+        target.put("brush_rpm", 1180.0);
+        target.put("water_pressure", "2.1");
+        target.put("robotSpeed", 0.4);
+        target.put("detergent_flow_rate", 0.027);
+        target.put("unknownKnob", 3);
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("params", Map.of("dwellTime", 4));
+        details.put("reason", "operator");
+
+        external = new StateChangeEventDTO();
+        external.setType("param_change");
+        external.setParamsTarget(target);
+        external.setDetails(details);
+    }
+
+    @Benchmark
+    public Map<String, Object> coerceTyped() {
+        return SimulatorRelay.coerceParams(typed).toSimulatorMap();
+    }
+
+    @Benchmark
+    public Map<String, Object> coerceExternal() {
+        return SimulatorRelay.coerceParams(external).toSimulatorMap();
+    }
+}
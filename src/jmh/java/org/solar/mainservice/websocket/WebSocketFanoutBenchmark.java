@@ -0,0 +1,74 @@
+package org.solar.mainservice.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.solar.mainservice.BenchmarkFixtures;
+import org.solar.mainservice.model.TelemetryReading;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out de una lectura a sus 3 tópicos: convertAndSend por destino (antes) vs serializar una vez (WebSocketNotifier).
+ * Correr con: mvn -Pjmh verify -Djmh.include=WebSocketFanout (gc.alloc.rate.norm = bytes por operación).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebSocketFanoutBenchmark {
+
+    private SimpMessagingTemplate template;
+    private WebSocketNotifier notifier;
+    private TelemetryReading reading;
+
+    @Setup
+    public void setup() {
+        MessageChannel sink = (message, timeout) -> true; // sin broker: solo se mide conversión + envío
+        template = new SimpMessagingTemplate(sink);
+        template.setMessageConverter(new MappingJackson2MessageConverter());
+        // delta, conflación y transporte nativo apagados: solo el camino STOMP
+        TelemetryDeltaEncoder deltas = new TelemetryDeltaEncoder();
+        notifier = new WebSocketNotifier(template, deltas, new NativeWsHub(new ObjectMapper(), deltas),
+                BenchmarkFixtures.metrics());
+        reading = BenchmarkFixtures.sampleReading();
+    }
+
+    @Benchmark
+    public void convertPerDestination() {
+        var payload = WebSocketNotifier.TelemetryWs.from(reading);
+        template.convertAndSend("/topic/telemetry/" + reading.getSessionId(), payload);
+        template.convertAndSend("/topic/telemetry", payload);
+        template.convertAndSend("/topic/panels/" + reading.getPanelId() + "/telemetry", payload);
+    }
+
+    @Benchmark
+    public void serializeOnce() {
+        notifier.sendTelemetry(reading);
+    }
+
+    /** Solo el armado del DTO, sin serializar. */
+    @Benchmark
+    public WebSocketNotifier.TelemetryWs telemetryWsFrom() {
+        return WebSocketNotifier.TelemetryWs.from(reading);
+    }
+
+    @Benchmark
+    public void encodeOnly(Blackhole bh) {
+        bh.consume(notifier.encode(WebSocketNotifier.TelemetryWs.from(reading)));
+    }
+}
@@ -0,0 +1,218 @@
+package org.solar.mainservice.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.reactivestreams.Publisher;
+import org.solar.mainservice.ai.dto.AiBatchPredictResponse;
+import org.solar.mainservice.ai.dto.AiBoostsDTO;
+import org.solar.mainservice.ai.dto.AiPredictResponse;
+import org.solar.mainservice.ai.dto.AiWindowStatsDTO;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in de la IA: POST /predict y /predict/batch (JSON por filas o columnar) con latencia log-normal,
+ * errores 500 y cuelgues configurables. CBOR responde 415 para ejercitar el fallback del codec.
+ * En {@code explain} devuelve el timestamp de la lectura más reciente de la ventana: así el generador
+ * sabe qué lectura originó cada decisión.
+ */
+final class AiStubServer {
+
+    private static final String TOKEN_PREFIX = "loadtest ts=";
+    private static final double Z_99 = 2.326;
+
+    private final LoadTestOptions opts;
+    private final ObjectMapper json;
+    private final double sigma;
+    private DisposableServer server;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong windows = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong hung = new AtomicLong();
+    private final AtomicLong unsupported = new AtomicLong();
+    private final AtomicLong badRequests = new AtomicLong();
+    private final AtomicLong batchRequests = new AtomicLong();
+
+    AiStubServer(LoadTestOptions opts, ObjectMapper json) {
+        this.opts = opts;
+        this.json = json;
+        this.sigma = opts.aiLatencyP99Ms() > opts.aiLatencyMs() && opts.aiLatencyMs() > 0
+                ? Math.log(opts.aiLatencyP99Ms() / opts.aiLatencyMs()) / Z_99 : 0.0;
+    }
+
+    int start() {
+        server = HttpServer.create()
+                .host(opts.bindHost())
+                .port(opts.aiPort())
+                .route(routes -> routes
+                        .post("/predict", (req, res) -> handle(req, res, false))
+                        .post("/predict/batch", (req, res) -> opts.aiBatch()
+                                ? handle(req, res, true)
+                                : res.status(HttpResponseStatus.NOT_FOUND).send()))
+                .bindNow();
+        return server.port();
+    }
+
+    void stop() {
+        if (server != null) server.disposeNow();
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("requests", requests.get());
+        m.put("batchRequests", batchRequests.get());
+        m.put("windows", windows.get());
+        m.put("errors500", errors.get());
+        m.put("hung", hung.get());
+        m.put("unsupportedMediaType", unsupported.get());
+        m.put("badRequests", badRequests.get());
+        return m;
+    }
+
+    /** null si {@code explain} no trae la marca del stub (predicción local o de otro origen). */
+    static LocalDateTime tokenTimestamp(Object explain) {
+        if (!(explain instanceof String s) || !s.startsWith(TOKEN_PREFIX)) return null;
+        try {
+            return LocalDateTime.parse(s.substring(TOKEN_PREFIX.length()));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private Publisher<Void> handle(HttpServerRequest req, HttpServerResponse res, boolean batch) {
+        requests.incrementAndGet();
+        if (batch) batchRequests.incrementAndGet();
+        String contentType = req.requestHeaders().get(HttpHeaderNames.CONTENT_TYPE, "");
+        if (contentType.contains("cbor")) {
+            unsupported.incrementAndGet();
+            return res.status(HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE).send();
+        }
+
+        return req.receive().aggregate().asByteArray().flatMap(bytes -> {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            double u = rnd.nextDouble();
+            if (u < opts.aiHangRate()) {
+                hung.incrementAndGet();
+                return res.status(HttpResponseStatus.SERVICE_UNAVAILABLE)
+                        .sendString(Mono.just("{\"error\":\"hang\"}").delayElement(Duration.ofMillis(opts.aiHangMs())))
+                        .then();
+            }
+            Duration latency = latency(rnd);
+            if (u < opts.aiHangRate() + opts.aiErrorRate()) {
+                errors.incrementAndGet();
+                return res.status(HttpResponseStatus.INTERNAL_SERVER_ERROR)
+                        .sendString(Mono.just("{\"error\":\"stub\"}").delayElement(latency))
+                        .then();
+            }
+
+            byte[] body;
+            try {
+                body = batch ? batchBody(json.readTree(bytes)) : json.writeValueAsBytes(prediction(json.readTree(bytes)));
+            } catch (Exception e) {
+                badRequests.incrementAndGet();
+                return res.status(HttpResponseStatus.BAD_REQUEST).sendString(Mono.just(String.valueOf(e.getMessage()))).then();
+            }
+            return res.status(HttpResponseStatus.OK)
+                    .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                    .sendByteArray(Mono.just(body).delayElement(latency))
+                    .then();
+        });
+    }
+
+    private byte[] batchBody(JsonNode root) throws Exception {
+        List<AiBatchPredictResponse.Result> results = new ArrayList<>();
+        for (JsonNode item : root.path("items")) {
+            AiBatchPredictResponse.Result r = new AiBatchPredictResponse.Result();
+            r.setId(item.path("id").asText(null));
+            r.setPrediction(prediction(item));
+            results.add(r);
+        }
+        AiBatchPredictResponse out = new AiBatchPredictResponse();
+        out.setResults(results);
+        return json.writeValueAsBytes(out);
+    }
+
+    /** Respuesta v2 con comandos en pasos de 0.1 (para que la supresión de repetidos tenga algo que hacer). */
+    private AiPredictResponse prediction(JsonNode window) {
+        windows.incrementAndGet();
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+
+        Map<String, Object> proposed = new LinkedHashMap<>();
+        proposed.put("brushRpm", step(rnd));
+        proposed.put("waterFlow", step(rnd));
+        proposed.put("pressure", step(rnd));
+        proposed.put("passes", step(rnd));
+        proposed.put("detergentPct", step(rnd));
+        proposed.put("dwellSec", step(rnd));
+        proposed.put("route", Map.of("keep", 0.6, "zigzag", 0.3, "spiral", 0.1));
+
+        double before = 8 + rnd.nextDouble() * 20;
+        double after = Math.max(0, before - rnd.nextDouble() * 8);
+        double f = rnd.nextDouble();
+
+        AiPredictResponse p = new AiPredictResponse();
+        p.setSchemaVersion("2");
+        p.setSessionId(sessionId(window));
+        p.setTimestamp(LocalDateTime.now(ZoneOffset.UTC).toString());
+        p.setPredictedEfficiencyLoss(after / 100.0);
+        p.setRecommendedCleaningFrequency(f < 0.2 ? "now" : f < 0.7 ? "hold_20s" : "after_2_windows");
+        p.setCleaningRouteAdjustment("keep");
+        p.setAlerts(List.of());
+        p.setProposedCommands(proposed);
+        LocalDateTime ts = latestTimestamp(window);
+        p.setExplain(ts != null ? TOKEN_PREFIX + ts : "loadtest");
+        p.setWindow(new AiWindowStatsDTO(before, after));
+        p.setBoosts(new AiBoostsDTO(rnd.nextInt(2), rnd.nextInt(2), rnd.nextInt(3) * 0.05));
+        return p;
+    }
+
+    private Duration latency(ThreadLocalRandom rnd) {
+        double ms = opts.aiLatencyMs() * Math.exp(sigma * rnd.nextGaussian());
+        return Duration.ofNanos((long) (Math.max(0, ms) * 1_000_000));
+    }
+
+    private static double step(ThreadLocalRandom rnd) {
+        return rnd.nextInt(11) / 10.0;
+    }
+
+    private static String sessionId(JsonNode window) {
+        JsonNode cols = window.path("columns");
+        if (cols.hasNonNull("sessionId")) return cols.get("sessionId").asText();
+        JsonNode first = window.path("points").path(0);
+        return first.hasNonNull("sessionId") ? first.get("sessionId").asText() : null;
+    }
+
+    /** Lectura más reciente de la ventana: ISO en points, epoch millis UTC en columns.ts. */
+    private static LocalDateTime latestTimestamp(JsonNode window) {
+        LocalDateTime max = null;
+        for (JsonNode p : window.path("points")) {
+            String ts = p.path("timestamp").asText(null);
+            if (ts == null) continue;
+            LocalDateTime t = LocalDateTime.parse(ts);
+            if (max == null || t.isAfter(max)) max = t;
+        }
+        for (JsonNode ms : window.path("columns").path("ts")) {
+            if (ms.asLong() <= 0) continue;
+            LocalDateTime t = LocalDateTime.ofInstant(Instant.ofEpochMilli(ms.asLong()), ZoneOffset.UTC);
+            if (max == null || t.isAfter(max)) max = t;
+        }
+        return max;
+    }
+}
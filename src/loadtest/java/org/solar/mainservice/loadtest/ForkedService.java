@@ -0,0 +1,122 @@
+package org.solar.mainservice.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * El servicio bajo prueba en su propia JVM (mismo classpath): así heap y GC de su /actuator/prometheus
+ * no incluyen al generador, los stubs ni los clientes STOMP, y sirven para dimensionar instancias.
+ * {@link #main} es el punto de entrada del proceso hijo.
+ */
+@Slf4j
+final class ForkedService implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final Process process;
+    private final String baseUrl;
+
+    private ForkedService(Process process, String baseUrl) {
+        this.process = process;
+        this.baseUrl = baseUrl;
+    }
+
+    /** Hijo: mismo arranque que antes en proceso, con Mongo en memoria si se pidió. */
+    public static void main(String[] args) {
+        LoadTestOptions opts = LoadTestOptions.from(new SimpleCommandLinePropertySource(args));
+        SpringApplicationBuilder builder = "memory".equalsIgnoreCase(opts.mongo())
+                ? new SpringApplicationBuilder(Application.class, InMemoryMongoConfig.class)
+                : new SpringApplicationBuilder(Application.class);
+        builder.run(args);
+    }
+
+    static ForkedService start(String[] args, LoadTestOptions opts, int aiPort, int simPort) throws Exception {
+        int port = freePort();
+        List<String> cmd = new ArrayList<>();
+        cmd.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        Arrays.stream(opts.serviceJvm().split(",")).map(String::trim).filter(s -> !s.isEmpty()).forEach(cmd::add);
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(ForkedService.class.getName());
+        cmd.add("--server.port=" + port);
+        cmd.add("--ai.base-url=http://127.0.0.1:" + aiPort);
+        cmd.add("--simulator.control-url=http://127.0.0.1:" + simPort + "/commands");
+        // con Mongo en memoria el indicador de salud seguiría intentando el Mongo real (30 s por consulta)
+        if ("memory".equalsIgnoreCase(opts.mongo())) cmd.add("--management.health.mongo.enabled=false");
+        // los argumentos del usuario van después y pisan lo anterior (p.ej. un server.port fijo)
+        cmd.addAll(List.of(args));
+
+        Process process = new ProcessBuilder(cmd).inheritIO().start();
+        String baseUrl = "http://127.0.0.1:" + userPort(args, port);
+        ForkedService service = new ForkedService(process, baseUrl);
+        try {
+            service.awaitListening();
+        } catch (Exception e) {
+            service.close();
+            throw e;
+        }
+        log.info("[LOAD] service forked pid={} at {} jvm={}", process.pid(), baseUrl, opts.serviceJvm());
+        return service;
+    }
+
+    String baseUrl() { return baseUrl; }
+
+    @Override
+    public void close() {
+        process.destroy(); // SIGTERM: apagado ordenado (drena el write-behind)
+        try {
+            if (!process.waitFor(15, TimeUnit.SECONDS)) process.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+
+    private void awaitListening() throws Exception {
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        // /actuator/prometheus y no /health: es lo que JvmSampler necesita y no depende de Mongo
+        HttpRequest probe = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/prometheus"))
+                .timeout(Duration.ofSeconds(2)).build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) throw new IllegalStateException("service exited with code " + process.exitValue());
+            try {
+                if (http.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) return;
+            } catch (IOException notYet) {
+                // todavía no escucha
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("service not listening after " + STARTUP_TIMEOUT.toSeconds() + "s");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket s = new ServerSocket(0)) {
+            return s.getLocalPort();
+        }
+    }
+
+    /** Si el usuario fijó --server.port, ese gana (último argumento). */
+    private static int userPort(String[] args, int fallback) {
+        int port = fallback;
+        for (String a : args) {
+            if (a.startsWith("--server.port=")) port = Integer.parseInt(a.substring("--server.port=".length()).trim());
+        }
+        return port;
+    }
+}
@@ -0,0 +1,107 @@
+package org.solar.mainservice.loadtest;
+
+import org.bson.types.ObjectId;
+import org.solar.mainservice.model.Session;
+import org.solar.mainservice.model.TelemetryReading;
+import org.solar.mainservice.repository.SessionRepository;
+import org.solar.mainservice.repository.TelemetryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Limit;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mongo en memoria para correr sin base ({@code --loadtest.mongo=memory}): reemplaza los dos repositorios
+ * con lo que usa el pipeline (save, findById, findByStatus, ventana por sesión e insertUnordered).
+ * Por sesión solo se guardan las últimas {@code loadtest.memory.readings-per-session} lecturas, así que
+ * el heap medido no incluye la base; con Mongo real también se mide el costo del driver.
+ */
+@Configuration(proxyBeanMethods = false)
+class InMemoryMongoConfig {
+
+    @Bean
+    @Primary
+    SessionRepository inMemorySessionRepository() {
+        Map<String, Session> store = new ConcurrentHashMap<>();
+        return proxy(SessionRepository.class, (self, method, args) -> switch (method.getName()) {
+            case "save" -> {
+                Session s = (Session) args[0];
+                if (s.getId() == null) s.setId(new ObjectId().toHexString());
+                store.put(s.getId(), s);
+                yield Mono.just(s);
+            }
+            case "findById" -> Mono.justOrEmpty(store.get((String) args[0]));
+            case "findByStatus" -> Flux.fromIterable(List.copyOf(store.values()))
+                    .filter(s -> args[0].equals(s.getStatus()));
+            case "count" -> Mono.just((long) store.size());
+            default -> unsupported(self, method.getName(), args);
+        });
+    }
+
+    @Bean
+    @Primary
+    TelemetryRepository inMemoryTelemetryRepository(
+            @Value("${loadtest.memory.readings-per-session:512}") int perSession) {
+        Map<String, Deque<TelemetryReading>> store = new ConcurrentHashMap<>();
+        return proxy(TelemetryRepository.class, (self, method, args) -> switch (method.getName()) {
+            case "save" -> Mono.fromCallable(() -> keep(store, (TelemetryReading) args[0], perSession));
+            case "insertUnordered" -> Mono.fromCallable(() -> {
+                @SuppressWarnings("unchecked")
+                List<TelemetryReading> batch = (List<TelemetryReading>) args[0];
+                batch.forEach(r -> keep(store, r, perSession));
+                return Set.<Integer>of();
+            });
+            case "findBySessionIdOrderByTimestampDesc" -> Flux.defer(() -> {
+                Deque<TelemetryReading> q = store.get((String) args[0]);
+                if (q == null) return Flux.empty();
+                List<TelemetryReading> copy;
+                synchronized (q) {
+                    copy = new ArrayList<>(q);
+                }
+                copy.sort(Comparator.comparing(TelemetryReading::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder())).reversed());
+                Limit limit = (Limit) args[1];
+                return Flux.fromIterable(limit.isLimited() ? copy.subList(0, Math.min(limit.max(), copy.size())) : copy);
+            });
+            case "count" -> Mono.fromCallable(() -> store.values().stream().mapToLong(Deque::size).sum());
+            default -> unsupported(self, method.getName(), args);
+        });
+    }
+
+    private static TelemetryReading keep(Map<String, Deque<TelemetryReading>> store, TelemetryReading r, int perSession) {
+        if (r.getId() == null) r.setId(new ObjectId().toHexString());
+        Deque<TelemetryReading> q = store.computeIfAbsent(String.valueOf(r.getSessionId()), k -> new ArrayDeque<>());
+        synchronized (q) {
+            q.addLast(r);
+            while (q.size() > perSession) q.removeFirst();
+        }
+        return r;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object unsupported(Object self, String name, Object[] args) {
+        return switch (name) {
+            case "toString" -> "InMemory" + self.getClass().getInterfaces()[0].getSimpleName();
+            case "hashCode" -> System.identityHashCode(self);
+            case "equals" -> self == args[0];
+            default -> throw new UnsupportedOperationException(name + " is not implemented by the in-memory load-test repository");
+        };
+    }
+}
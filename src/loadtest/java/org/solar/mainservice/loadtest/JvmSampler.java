@@ -0,0 +1,125 @@
+package org.solar.mainservice.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap y GC del servicio durante la medición, leídos de su /actuator/prometheus (jvm_memory_used_bytes,
+ * jvm_gc_pause_seconds). El servicio corre en su propia JVM (o es el target remoto), así que los números
+ * no incluyen al generador.
+ */
+@Slf4j
+final class JvmSampler {
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+    private final HttpRequest scrape;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "loadtest-jvm-sampler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Scrape first;
+    private long startNanos;
+    private long heapMax, heapSum, heapLimit, samples, failures;
+
+    /** Lo que interesa de una lectura de /actuator/prometheus. */
+    private record Scrape(long heapUsed, long heapLimit, long gcCount, double gcSeconds) {}
+
+    JvmSampler(String baseUrl) {
+        this.scrape = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/prometheus"))
+                .timeout(Duration.ofSeconds(2)).build();
+    }
+
+    void start() {
+        first = fetch();
+        startNanos = System.nanoTime();
+        timer.scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+    }
+
+    synchronized void sample() {
+        Scrape s = fetch();
+        if (s == null) {
+            failures++;
+            return;
+        }
+        heapMax = Math.max(heapMax, s.heapUsed());
+        heapSum += s.heapUsed();
+        heapLimit = s.heapLimit();
+        samples++;
+    }
+
+    Map<String, Object> stop() {
+        timer.shutdown(); // sin interrumpir: una lectura en curso terminaría contada como fallo
+        try {
+            timer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        Scrape last = fetch();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("source", scrape.uri().toString());
+        synchronized (this) {
+            result.put("heapMaxMb", heapMax / (1024 * 1024));
+            result.put("heapAvgMb", samples == 0 ? 0 : heapSum / samples / (1024 * 1024));
+            result.put("heapLimitMb", heapLimit / (1024 * 1024));
+            result.put("scrapeFailures", failures);
+        }
+        if (first != null && last != null) {
+            long gcMs = Math.round((last.gcSeconds() - first.gcSeconds()) * 1000);
+            result.put("gcCount", last.gcCount() - first.gcCount());
+            result.put("gcTimeMs", gcMs);
+            result.put("gcTimePct", Math.round(gcMs / (seconds * 1000.0) * 10000.0) / 100.0);
+        }
+        return result;
+    }
+
+    private Scrape fetch() {
+        try {
+            HttpResponse<String> res = http.send(scrape, HttpResponse.BodyHandlers.ofString());
+            if (res.statusCode() != 200) {
+                log.warn("[LOAD] {} answered {}", scrape.uri(), res.statusCode());
+                return null;
+            }
+            return parse(res.body());
+        } catch (Exception e) {
+            log.warn("[LOAD] could not scrape {}: {}", scrape.uri(), e.toString());
+            return null;
+        }
+    }
+
+    /** Suma las series de heap (todas las áreas area="heap") y de pausas de GC (todas las causas). */
+    static Scrape parse(String text) {
+        long heapUsed = 0, heapLimit = 0;
+        double gcCount = 0, gcSeconds = 0;
+        for (String line : text.split("\n")) {
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            int sp = line.lastIndexOf(' ');
+            if (sp < 0) continue;
+            String series = line.substring(0, sp);
+            double value;
+            try {
+                value = Double.parseDouble(line.substring(sp + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            boolean heap = series.contains("area=\"heap\"");
+            if (series.startsWith("jvm_memory_used_bytes{") && heap) heapUsed += (long) value;
+            else if (series.startsWith("jvm_memory_max_bytes{") && heap && value > 0) heapLimit += (long) value;
+            else if (series.startsWith("jvm_gc_pause_seconds_count{")) gcCount += value;
+            else if (series.startsWith("jvm_gc_pause_seconds_sum{")) gcSeconds += value;
+        }
+        return new Scrape(heapUsed, heapLimit, (long) gcCount, gcSeconds);
+    }
+}
@@ -0,0 +1,47 @@
+package org.solar.mainservice.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Muestras de latencia en nanos; los percentiles se calculan ordenando al final (alcanza para una corrida). */
+final class LatencyRecorder {
+
+    private long[] samples = new long[4096];
+    private int size;
+    private volatile boolean recording;
+
+    /** Durante el warmup las muestras se descartan. */
+    void start() { recording = true; }
+
+    synchronized void record(long nanos) {
+        if (!recording || nanos < 0) return;
+        if (size == samples.length) samples = Arrays.copyOf(samples, size * 2);
+        samples[size++] = nanos;
+    }
+
+    /** count y percentiles en ms. */
+    Map<String, Object> summary() {
+        long[] sorted;
+        synchronized (this) {
+            sorted = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(sorted);
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", sorted.length);
+        if (sorted.length == 0) return m;
+        m.put("p50", ms(sorted, 0.50));
+        m.put("p90", ms(sorted, 0.90));
+        m.put("p99", ms(sorted, 0.99));
+        m.put("p999", ms(sorted, 0.999));
+        m.put("max", round(sorted[sorted.length - 1] / 1e6));
+        return m;
+    }
+
+    private static double ms(long[] sorted, double q) {
+        int idx = (int) Math.min(sorted.length - 1, Math.ceil(q * sorted.length) - 1);
+        return round(sorted[Math.max(0, idx)] / 1e6);
+    }
+
+    private static double round(double v) { return Math.round(v * 100.0) / 100.0; }
+}
@@ -0,0 +1,189 @@
+package org.solar.mainservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Carga de punta a punta: stubs de IA y simulador, el servicio (en una JVM propia o remoto), N sesiones a M Hz
+ * y suscriptores STOMP. Al final imprime latencias ingest→WS/predicción/comando, throughput,
+ * ventanas descartadas (contadores de /api/runtime) y heap/GC del servicio (de su /actuator/prometheus).
+ *
+ * <p>Mongo: el del docker-compose (o {@code --spring.data.mongodb.uri=...}); con {@code --loadtest.mongo=memory}
+ * se usa {@link InMemoryMongoConfig} y no hace falta base.
+ * Correr con {@code mvn -Ploadtest verify -Dloadtest.args="--loadtest.sessions=50 --loadtest.hz=10"}.
+ */
+@Slf4j
+public final class LoadTestMain {
+
+    /** Endpoints de /api/runtime que van al reporte (estado al final de la corrida). */
+    private static final List<String> RUNTIME_STATS = List.of(
+            "predictions", "trigger", "write-behind", "ai-client", "ai-batch", "ai-cache", "control-suppression", "simulator", "ws");
+
+    /** Contadores del servicio de ventanas/lecturas que no llegaron a decisión o a los clientes. */
+    private static final List<String> DROP_COUNTERS = List.of(
+            "predictions.dropped", "predictions.coalesced",
+            "write-behind.rejected", "write-behind.failed",
+            "ai-client.breaker.rejected", "ai-client.timeouts",
+            "ws.session.dropped", "ws.global.dropped", "ws.panel.dropped");
+
+    private LoadTestMain() {}
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions opts = LoadTestOptions.from(new SimpleCommandLinePropertySource(args));
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        AiStubServer ai = new AiStubServer(opts, json);
+        SimulatorStubServer sim = new SimulatorStubServer(opts, json);
+        int aiPort = ai.start();
+        int simPort = sim.start();
+        log.info("[LOAD] stubs up: ai=:{} simulator=:{}", aiPort, simPort);
+
+        ForkedService service = null;
+        TelemetryLoadGenerator gen = null;
+        int exit = 0;
+        try {
+            String baseUrl;
+            if (opts.embedded()) {
+                service = ForkedService.start(args, opts, aiPort, simPort);
+                baseUrl = service.baseUrl();
+            } else {
+                baseUrl = opts.target().replaceAll("/+$", "");
+                log.info("[LOAD] remote target {}: it must point ai.base-url to {}:{} and simulator.control-url to {}:{}/commands",
+                        baseUrl, opts.stubHost(), aiPort, opts.stubHost(), simPort);
+            }
+
+            gen = new TelemetryLoadGenerator(opts, baseUrl, json);
+            gen.startSessions();
+            gen.connectStomp();
+
+            log.info("[LOAD] {} sessions at {} Hz: warmup {}s, measuring {}s", opts.sessions(), opts.hz(), opts.warmupS(), opts.durationS());
+            gen.startLoad();
+            Thread.sleep(opts.warmupS() * 1000L);
+
+            JvmSampler jvm = new JvmSampler(baseUrl);
+            Map<String, Object> runtimeBefore = runtimeStats(gen); // HTTP: va antes de los contadores locales
+            Map<String, Object> genBefore = gen.stats();
+            Map<String, Object> aiBefore = ai.stats();
+            Map<String, Object> simBefore = sim.stats();
+            gen.startRecording();
+            jvm.start();
+            long start = System.nanoTime();
+            Thread.sleep(opts.durationS() * 1000L);
+
+            gen.stopLoad();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Thread.sleep(opts.drainS() * 1000L); // decisiones de las últimas lecturas
+            Map<String, Object> jvmStats = jvm.stop();
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("at", Instant.now().toString());
+            report.put("options", opts);
+            report.put("measuredSeconds", Math.round(seconds * 10) / 10.0);
+            report.put("throughputPerSec", throughput(gen.stats(), genBefore, sim.stats(), simBefore, seconds));
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("ingestAck", gen.ingestAck.summary());
+            latency.put("ingestToTelemetryWs", gen.ingestToTelemetryWs.summary());
+            latency.put("ingestToPrediction", gen.ingestToPrediction.summary());
+            latency.put("ingestToCommand", gen.ingestToCommand.summary());
+            report.put("latencyMs", latency);
+            report.put("generator", delta(gen.stats(), genBefore));
+            report.put("aiStub", delta(ai.stats(), aiBefore));
+            report.put("simulatorStub", delta(sim.stats(), simBefore));
+            Map<String, Object> runtimeAfter = runtimeStats(gen);
+            report.put("droppedWindows", dropped(runtimeAfter, runtimeBefore));
+            report.put("service", runtimeAfter);
+            report.put("jvm", jvmStats);
+
+            gen.stopSessions();
+            print(json, opts, report);
+        } catch (Exception e) {
+            log.error("[LOAD] run failed", e);
+            exit = 1;
+        } finally {
+            if (gen != null) gen.close();
+            if (service != null) service.close();
+            ai.stop();
+            sim.stop();
+        }
+        System.exit(exit);
+    }
+
+    private static Map<String, Object> runtimeStats(TelemetryLoadGenerator gen) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (String name : RUNTIME_STATS) out.put(name, gen.runtimeStats(name));
+        return out;
+    }
+
+    private static Map<String, Object> throughput(Map<String, Object> gen, Map<String, Object> genBefore,
+                                                  Map<String, Object> sim, Map<String, Object> simBefore, double seconds) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("readingsAccepted", rate(gen, genBefore, "readingsAccepted", seconds));
+        m.put("decisionsRelayed", rate(gen, genBefore, "decisionsRelayed", seconds));
+        m.put("simulatorCommands", rate(sim, simBefore, "commands", seconds));
+        return m;
+    }
+
+    private static double rate(Map<String, Object> now, Map<String, Object> before, String key, double seconds) {
+        double d = ((Number) now.get(key)).doubleValue() - ((Number) before.get(key)).doubleValue();
+        return Math.round(d / seconds * 10) / 10.0;
+    }
+
+    private static Map<String, Object> dropped(Map<String, Object> after, Map<String, Object> before) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (String path : DROP_COUNTERS) {
+            Object a = lookup(after, path), b = lookup(before, path);
+            if (a instanceof Number na) out.put(path, na.longValue() - (b instanceof Number nb ? nb.longValue() : 0L));
+        }
+        return out;
+    }
+
+    private static Object lookup(Map<String, Object> stats, String path) {
+        Object cur = stats;
+        for (String part : path.split("\\.")) {
+            if (!(cur instanceof Map<?, ?> m)) return null;
+            cur = m.get(part);
+        }
+        return cur;
+    }
+
+    /** Diferencia campo a campo de los contadores (todos los del generador y los stubs lo son). */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> delta(Map<String, ?> now, Map<String, ?> before) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        now.forEach((k, v) -> {
+            Object b = before != null ? before.get(k) : null;
+            if (v instanceof Map<?, ?> m) {
+                out.put(k, delta((Map<String, ?>) m, b instanceof Map<?, ?> bm ? (Map<String, ?>) bm : Map.of()));
+            } else if ((v instanceof Long || v instanceof Integer) && b instanceof Number n) {
+                out.put(k, ((Number) v).longValue() - n.longValue());
+            } else {
+                out.put(k, v);
+            }
+        });
+        return out;
+    }
+
+    private static void print(ObjectMapper json, LoadTestOptions opts, Map<String, Object> report) throws Exception {
+        String text = json.writerWithDefaultPrettyPrinter().writeValueAsString(report);
+        System.out.println("===== load test report =====");
+        System.out.println(text);
+        if (!opts.reportFile().isBlank()) {
+            Path path = Path.of(opts.reportFile());
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            Files.writeString(path, text);
+            log.info("[LOAD] report written to {}", path.toAbsolutePath());
+        }
+    }
+}
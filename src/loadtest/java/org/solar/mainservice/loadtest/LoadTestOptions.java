@@ -0,0 +1,83 @@
+package org.solar.mainservice.loadtest;
+
+import org.springframework.core.env.PropertySource;
+
+/**
+ * Opciones del harness, todas bajo {@code --loadtest.*}. El resto de los argumentos se pasan tal cual
+ * al servicio local (p.ej. {@code --ai.request.mode=features}).
+ */
+public record LoadTestOptions(
+        String target,            // vacío = levantar el servicio en una JVM propia (ver ForkedService)
+        int sessions,
+        double hz,
+        int durationS,
+        int warmupS,
+        int drainS,
+        int stompPerSession,
+        int maxInFlight,
+        String reportFile,
+        String mongo,             // local (spring.data.mongodb.uri) | memory (InMemoryMongoConfig, solo embebido)
+        String serviceJvm,        // flags de la JVM del servicio, separados por coma
+
+        String stubHost,          // cómo ve el servicio a los stubs (solo importa con target remoto)
+        int aiPort,
+        double aiLatencyMs,       // mediana de la log-normal
+        double aiLatencyP99Ms,
+        double aiErrorRate,       // 500
+        double aiHangRate,        // no responde hasta hang-ms (el cliente corta por timeout)
+        long aiHangMs,
+        boolean aiBatch,          // false: /predict/batch responde 404 y el servicio cae a llamadas sueltas
+
+        int simPort,
+        double simLatencyMs,
+        double simErrorRate
+) {
+
+    static LoadTestOptions from(PropertySource<?> args) {
+        return new LoadTestOptions(
+                str(args, "target", ""),
+                (int) num(args, "sessions", 20),
+                num(args, "hz", 5),
+                (int) num(args, "duration-s", 60),
+                (int) num(args, "warmup-s", 10),
+                (int) num(args, "drain-s", 5),
+                (int) num(args, "stomp-per-session", 1),
+                (int) num(args, "max-in-flight", 2048),
+                str(args, "report-file", ""),
+                str(args, "mongo", "local"),
+                str(args, "service-jvm", "-Xms1g,-Xmx1g,-XX:+UseG1GC"),
+
+                str(args, "stub.host", "127.0.0.1"),
+                (int) num(args, "stub.ai-port", 0),
+                num(args, "stub.ai-latency-ms", 40),
+                num(args, "stub.ai-latency-p99-ms", 250),
+                num(args, "stub.ai-error-rate", 0.01),
+                num(args, "stub.ai-hang-rate", 0.0),
+                (long) num(args, "stub.ai-hang-ms", 30_000),
+                Boolean.parseBoolean(str(args, "stub.ai-batch", "true")),
+
+                (int) num(args, "stub.sim-port", 0),
+                num(args, "stub.sim-latency-ms", 5),
+                num(args, "stub.sim-error-rate", 0.0));
+    }
+
+    boolean embedded() { return target == null || target.isBlank(); }
+
+    /** Con target remoto los stubs tienen que ser alcanzables desde afuera. */
+    String bindHost() { return embedded() ? "127.0.0.1" : "0.0.0.0"; }
+
+    private static String str(PropertySource<?> args, String key, String def) {
+        Object v = args.getProperty("loadtest." + key);
+        return v != null ? v.toString().trim() : def;
+    }
+
+    private static double num(PropertySource<?> args, String key, double def) {
+        String v = str(args, key, null);
+        if (v == null || v.isEmpty()) return def;
+        try {
+            return Double.parseDouble(v);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--loadtest." + key + " must be numeric, got " + v);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.solar.mainservice.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Stand-in del simulador/gateway: POST /commands responde {"ok":true} y cuenta lo recibido por causa. */
+final class SimulatorStubServer {
+
+    private final LoadTestOptions opts;
+    private final ObjectMapper json;
+    private DisposableServer server;
+
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong bulkItems = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final Map<String, AtomicLong> byCause = new ConcurrentHashMap<>();
+
+    SimulatorStubServer(LoadTestOptions opts, ObjectMapper json) {
+        this.opts = opts;
+        this.json = json;
+    }
+
+    int start() {
+        server = HttpServer.create()
+                .host(opts.bindHost())
+                .port(opts.simPort())
+                .route(routes -> routes.post("/commands", this::handle))
+                .bindNow();
+        return server.port();
+    }
+
+    void stop() {
+        if (server != null) server.disposeNow();
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("commands", commands.get());
+        m.put("bulkItems", bulkItems.get());
+        m.put("errors500", errors.get());
+        Map<String, Object> causes = new LinkedHashMap<>();
+        byCause.forEach((k, v) -> causes.put(k, v.get()));
+        m.put("byCause", causes);
+        return m;
+    }
+
+    private Publisher<Void> handle(HttpServerRequest req, HttpServerResponse res) {
+        return req.receive().aggregate().asByteArray().flatMap(bytes -> {
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            Duration latency = Duration.ofNanos((long) (opts.simLatencyMs() * 1_000_000 * (0.5 + rnd.nextDouble())));
+            if (rnd.nextDouble() < opts.simErrorRate()) {
+                errors.incrementAndGet();
+                return res.status(HttpResponseStatus.INTERNAL_SERVER_ERROR)
+                        .sendString(Mono.just("{\"ok\":false}").delayElement(latency))
+                        .then();
+            }
+            commands.incrementAndGet();
+            try {
+                JsonNode body = json.readTree(bytes);
+                byCause.computeIfAbsent(body.path("cause").asText("none"), k -> new AtomicLong()).incrementAndGet();
+                bulkItems.addAndGet(body.path("bulk").size());
+            } catch (Exception e) {
+                byCause.computeIfAbsent("unparseable", k -> new AtomicLong()).incrementAndGet();
+            }
+            return res.status(HttpResponseStatus.OK)
+                    .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                    .sendString(Mono.just("{\"ok\":true}").delayElement(latency))
+                    .then();
+        });
+    }
+}
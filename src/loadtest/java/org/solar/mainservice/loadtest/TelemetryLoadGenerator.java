@@ -0,0 +1,342 @@
+package org.solar.mainservice.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.model.TelemetryReading;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * N sesiones a M Hz contra POST /api/telemetry y suscriptores STOMP por sesión.
+ * Cada lectura lleva un timestamp único por sesión; con él se cruzan los eventos ai_prediction/ai_decision
+ * (vía el explain del stub) y el eco de telemetría con el instante de envío.
+ */
+@Slf4j
+final class TelemetryLoadGenerator {
+
+    /** Lecturas enviadas y todavía sin decisión, por sesión: timestamp → System.nanoTime() del envío. */
+    private final Map<String, ConcurrentSkipListMap<LocalDateTime, Long>> sent = new ConcurrentHashMap<>();
+
+    private final LoadTestOptions opts;
+    private final String baseUrl;
+    private final ObjectMapper json;
+    private final WebClient http;
+    private final WebClient control;
+    private final ConnectionProvider pool;
+    private final ConnectionProvider controlPool;
+    private final Semaphore inFlight;
+    private final ScheduledExecutorService ticker;
+    private final List<String> sessionIds = new ArrayList<>();
+    private final List<StompSession> stompSessions = new ArrayList<>();
+    private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
+    private WebSocketStompClient stomp;
+
+    final LatencyRecorder ingestAck = new LatencyRecorder();
+    final LatencyRecorder ingestToTelemetryWs = new LatencyRecorder();
+    final LatencyRecorder ingestToPrediction = new LatencyRecorder();
+    final LatencyRecorder ingestToCommand = new LatencyRecorder();
+
+    private final AtomicLong readingsSent = new AtomicLong();
+    private final AtomicLong readingsAccepted = new AtomicLong();
+    private final AtomicLong readingsRejected = new AtomicLong();
+    private final AtomicLong readingsSkipped = new AtomicLong();
+    private final AtomicLong readingsLate = new AtomicLong();
+    private final AtomicLong wsTelemetry = new AtomicLong();
+    private final AtomicLong wsPredictions = new AtomicLong();
+    private final AtomicLong decisionsRelayed = new AtomicLong();
+    private final AtomicLong decisionsSuppressed = new AtomicLong();
+    private final AtomicLong decisionsUnmatched = new AtomicLong();
+    private final Map<String, AtomicLong> decisionsBySource = new ConcurrentHashMap<>();
+
+    TelemetryLoadGenerator(LoadTestOptions opts, String baseUrl, ObjectMapper json) {
+        this.opts = opts;
+        this.baseUrl = baseUrl;
+        this.json = json;
+        this.pool = ConnectionProvider.builder("loadtest")
+                .maxConnections(Math.max(64, opts.sessions()))
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.http = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(pool)))
+                .build();
+        // sesiones y /api/runtime por fuera del pool de telemetría: no esperan detrás de miles de POST en cola
+        this.controlPool = ConnectionProvider.builder("loadtest-control").maxConnections(4).build();
+        this.control = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(controlPool)))
+                .build();
+        this.inFlight = new Semaphore(opts.maxInFlight());
+        this.ticker = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2), r -> {
+            Thread t = new Thread(r, "loadtest-ticker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    void startSessions() {
+        for (int i = 0; i < opts.sessions(); i++) {
+            String sessionId = "lt-" + i;
+            Map<String, Object> req = Map.of("sessionId", sessionId, "panelId", panelId(sessionId),
+                    "meta", Map.of("scenario", "loadtest"));
+            control.post().uri("/api/sessions/start")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(req)
+                    .retrieve().toBodilessEntity()
+                    .block(Duration.ofSeconds(10));
+            sessionIds.add(sessionId);
+            sent.put(sessionId, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    void connectStomp() throws Exception {
+        if (opts.stompPerSession() <= 0) return;
+        stomp = new WebSocketStompClient(new StandardWebSocketClient());
+        String wsUrl = baseUrl.replaceFirst("^http", "ws") + "/ws";
+        for (String sessionId : sessionIds) {
+            for (int c = 0; c < opts.stompPerSession(); c++) {
+                boolean measure = c == 0; // el resto solo suma carga de fan-out
+                StompSession s = stomp.connectAsync(wsUrl, new StompSessionHandlerAdapter() {}).get(10, TimeUnit.SECONDS);
+                s.subscribe("/topic/telemetry/" + sessionId, handler(body -> onTelemetry(sessionId, body, measure)));
+                s.subscribe("/topic/sessions/" + sessionId + "/ai_prediction", handler(body -> onPrediction(sessionId, body, measure)));
+                s.subscribe("/topic/sessions/" + sessionId + "/ai_decision", handler(body -> onDecision(sessionId, body, measure)));
+                stompSessions.add(s);
+            }
+        }
+    }
+
+    /**
+     * Arranca el envío a ritmo fijo; las sesiones se reparten dentro del período para no llegar en ráfaga.
+     * Un tick que sale más de un período tarde (ticker sin CPU) se cuenta como atrasado y no se envía:
+     * scheduleAtFixedRate lo recuperaría de golpe y la ráfaga inflaría el throughput medido.
+     */
+    void startLoad() {
+        long periodNanos = (long) (1_000_000_000L / opts.hz());
+        LocalDateTime base = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < sessionIds.size(); i++) {
+            String sessionId = sessionIds.get(i);
+            AtomicLong seq = new AtomicLong();
+            long offset = periodNanos * i / Math.max(1, sessionIds.size());
+            tasks.add(ticker.scheduleAtFixedRate(() -> {
+                long n = seq.getAndIncrement();
+                if (System.nanoTime() - (t0 + offset + n * periodNanos) > periodNanos) {
+                    readingsLate.incrementAndGet();
+                    return;
+                }
+                sendReading(sessionId, base, n, periodNanos);
+            }, offset, periodNanos, TimeUnit.NANOSECONDS));
+        }
+    }
+
+    void startRecording() {
+        ingestAck.start();
+        ingestToTelemetryWs.start();
+        ingestToPrediction.start();
+        ingestToCommand.start();
+    }
+
+    void stopLoad() {
+        tasks.forEach(t -> t.cancel(false));
+    }
+
+    void stopSessions() {
+        for (String sessionId : sessionIds) {
+            try {
+                control.post().uri("/api/sessions/{id}/stop", sessionId)
+                        .retrieve().toBodilessEntity()
+                        .block(Duration.ofSeconds(10));
+            } catch (RuntimeException e) {
+                log.warn("[LOAD] stop {} failed: {}", sessionId, e.toString());
+            }
+        }
+    }
+
+    void close() {
+        ticker.shutdownNow();
+        stompSessions.forEach(s -> {
+            try { s.disconnect(); } catch (RuntimeException ignored) { }
+        });
+        if (stomp != null) stomp.stop();
+        pool.dispose();
+        controlPool.dispose();
+    }
+
+    /** GET de un endpoint de /api/runtime; mapa vacío si no responde. */
+    Map<String, Object> runtimeStats(String name) {
+        try {
+            JsonNode node = control.get().uri("/api/runtime/" + name)
+                    .retrieve().bodyToMono(JsonNode.class)
+                    .block(Duration.ofSeconds(5));
+            return node != null ? json.convertValue(node, new TypeReference<Map<String, Object>>() {}) : Map.of();
+        } catch (RuntimeException e) {
+            return Map.of();
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("readingsSent", readingsSent.get());
+        m.put("readingsAccepted", readingsAccepted.get());
+        m.put("readingsRejected", readingsRejected.get());
+        m.put("readingsSkippedClientSaturated", readingsSkipped.get());
+        m.put("readingsSkippedLate", readingsLate.get());
+        m.put("wsTelemetry", wsTelemetry.get());
+        m.put("wsPredictions", wsPredictions.get());
+        m.put("decisionsRelayed", decisionsRelayed.get());
+        m.put("decisionsSuppressed", decisionsSuppressed.get());
+        m.put("decisionsUnmatched", decisionsUnmatched.get());
+        Map<String, Object> sources = new LinkedHashMap<>();
+        decisionsBySource.forEach((k, v) -> sources.put(k, v.get()));
+        m.put("decisionsBySource", sources);
+        return m;
+    }
+
+    // ===== envío =====
+
+    private void sendReading(String sessionId, LocalDateTime base, long seq, long periodNanos) {
+        // sin permiso = el servicio no da abasto y el generador no acumula más pedidos en vuelo
+        if (!inFlight.tryAcquire()) {
+            readingsSkipped.incrementAndGet();
+            return;
+        }
+        LocalDateTime ts = base.plusNanos(seq * periodNanos).truncatedTo(ChronoUnit.MILLIS);
+        ConcurrentSkipListMap<LocalDateTime, Long> pending = sent.get(sessionId);
+        pending.headMap(ts.minusSeconds(60)).clear(); // nada llega tan tarde
+
+        TelemetryReading r = reading(sessionId, ts, seq);
+        long start = System.nanoTime();
+        pending.put(ts, start);
+        readingsSent.incrementAndGet();
+
+        http.post().uri("/api/telemetry")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(r)
+                .retrieve().toBodilessEntity()
+                .doFinally(sig -> inFlight.release())
+                .subscribe(ok -> {
+                    readingsAccepted.incrementAndGet();
+                    ingestAck.record(System.nanoTime() - start);
+                }, e -> {
+                    readingsRejected.incrementAndGet();
+                    pending.remove(ts);
+                });
+    }
+
+    private static TelemetryReading reading(String sessionId, LocalDateTime ts, long seq) {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        double dust = 0.15 + 0.1 * Math.sin(seq / 50.0) + rnd.nextDouble() * 0.02;
+
+        TelemetryReading r = new TelemetryReading();
+        r.setSessionId(sessionId);
+        r.setPanelId(panelId(sessionId));
+        r.setTimestamp(ts);
+        r.setTemperature(30 + rnd.nextDouble() * 5);
+        r.setHumidity(40 + rnd.nextDouble() * 10);
+        r.setDustLevel(dust);
+        r.setPowerOutput(300 * (1 - dust) + rnd.nextDouble() * 3);
+        r.setVibration(rnd.nextDouble() * 0.02);
+        r.setMicroFractureRisk(0.01);
+        r.setLocation(new TelemetryReading.GeoLocation(4.61, -74.08));
+        r.setState(new TelemetryReading.State("AUTO", ts, "loadtest"));
+        r.setParams(new TelemetryReading.Params(0.4, 1000.0, 1.8, 0.03, 0.6, 0.5, 0.15, 0.3, 0.2, 3.0, 300.0, 2.0, 50.0));
+        r.setGrid(new TelemetryReading.Grid(new TelemetryReading.Grid.Position((int) (seq % 10), (int) (seq / 10 % 10)),
+                dust + 0.03, dust, 0.03, 1, Math.min(1.0, seq / 1000.0), dust, dust + 0.1));
+        return r;
+    }
+
+    private static String panelId(String sessionId) {
+        return "panel-" + sessionId;
+    }
+
+    // ===== STOMP =====
+
+    private StompFrameHandler handler(Consumer<JsonNode> onBody) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) { return byte[].class; }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                try {
+                    onBody.accept(json.readTree((byte[]) payload));
+                } catch (Exception e) {
+                    log.debug("[LOAD] unparseable frame on {}: {}", headers.getDestination(), e.toString());
+                }
+            }
+        };
+    }
+
+    private void onTelemetry(String sessionId, JsonNode body, boolean measure) {
+        wsTelemetry.incrementAndGet();
+        if (!measure || !body.hasNonNull("timestamp")) return;
+        Long start = sent.get(sessionId).get(LocalDateTime.parse(body.get("timestamp").asText()));
+        if (start != null) ingestToTelemetryWs.record(System.nanoTime() - start);
+    }
+
+    private void onPrediction(String sessionId, JsonNode body, boolean measure) {
+        wsPredictions.incrementAndGet();
+        if (!measure) return;
+        JsonNode pr = body.path("prediction");
+        if (!"ai".equals(pr.path("source").asText())) return;
+        LocalDateTime ts = AiStubServer.tokenTimestamp(pr.path("explain").asText(null));
+        Long start = ts != null ? sent.get(sessionId).get(ts) : null;
+        if (start != null) ingestToPrediction.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Las respuestas de caché repiten el explain de una predicción anterior, así que solo las de la IA
+     * cuentan para la latencia; una vez usada, la lectura sale del mapa.
+     */
+    private void onDecision(String sessionId, JsonNode body, boolean measure) {
+        if (!measure) return;
+        String source = body.path("source").asText("unknown");
+        decisionsBySource.computeIfAbsent(source, k -> new AtomicLong()).incrementAndGet();
+        boolean relayed = body.path("relayed").asBoolean(true);
+        if (!relayed) {
+            decisionsSuppressed.incrementAndGet();
+        } else {
+            decisionsRelayed.incrementAndGet();
+        }
+        if (!"ai".equals(source)) return;
+
+        LocalDateTime ts = AiStubServer.tokenTimestamp(body.path("explain").asText(null));
+        Long start = ts != null ? sent.get(sessionId).remove(ts) : null;
+        if (start == null) {
+            decisionsUnmatched.incrementAndGet();
+            return;
+        }
+        if (relayed) ingestToCommand.record(System.nanoTime() - start);
+    }
+}
@@ -2,25 +2,30 @@ package org.solar.mainservice;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.ai.dto.AiBoostsDTO;
 import org.solar.mainservice.ai.dto.AiPredictResponse;
+import org.solar.mainservice.ai.dto.AiWindowStatsDTO;
+import org.solar.mainservice.control.CommandSuppressor;
+import org.solar.mainservice.control.ControlPolicy;
+import org.solar.mainservice.control.ControlPolicyHolder;
+import org.solar.mainservice.control.ControllerStateStore;
+import org.solar.mainservice.control.Param;
+import org.solar.mainservice.control.ParamVector;
 import org.solar.mainservice.dto.StateChangeEventDTO;
+import org.solar.mainservice.metrics.PipelineMetrics;
+import org.solar.mainservice.metrics.PipelineMetrics.DecisionOutcome;
+import org.solar.mainservice.metrics.PipelineMetrics.RelayOutcome;
 import org.solar.mainservice.safety.SafetyGuard;
 import org.solar.mainservice.service.SimulatorRelay;
 import org.solar.mainservice.websocket.WebSocketNotifier;
-import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import java.lang.reflect.Method;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -29,18 +34,23 @@ public class DecisionOrchestrator {
     private final SimulatorRelay simulatorRelay;
     private final WebSocketNotifier webSocketNotifier;
     private final SafetyGuard safetyGuard;
-    private final Environment env;
+    private final ControlPolicyHolder policies;
+    private final ControllerStateStore controllerState;
+    private final CommandSuppressor suppressor;
+    private final PipelineMetrics metrics;
 
-    private SafetyGuard.Commands prev;
+    /** before/after (%) que se asume cuando la IA no informa estadísticas de ventana. */
+    private static final double DEFAULT_DUST_PCT = 10.0;
 
     public Mono<Void> handlePrediction(String sessionId,
                                        String panelId,
                                        String prevMode,
-                                       Map<String, Object> prevParams,
+                                       ParamVector prevParams,
                                        AiPredictResponse pr,
                                        boolean applyControl) {
+        long start = System.nanoTime();
 
-        log.info("[ORCH] IN session={} panel={} applyControl={} pr={}", sessionId, panelId, applyControl, pr);
+        log.info("[ORCH] IN session={} panel={} source={} applyControl={} pr={}", sessionId, panelId, pr.getSource(), applyControl, pr);
 
         webSocketNotifier.sendRuntimeEvent("ai_prediction", Map.of(
                 "sessionId", sessionId,
@@ -50,25 +60,17 @@ public class DecisionOrchestrator {
 
         if (!applyControl || pr.getProposedCommands() == null || pr.getProposedCommands().isEmpty()) {
             log.info("[ORCH] SKIP control (applyControl={} or no commands)", applyControl);
+            metrics.decision(pr.getSource(), DecisionOutcome.SKIPPED, start);
             return Mono.empty();
         }
 
-        // ===== 1) Límites físicos y mínimos operativos =====
-        var limits = SafetyGuard.Limits.builder()
-                .rpmMin(env.getProperty("control.limits.rpmMin", Double.class, 500.0))
-                .rpmMax(env.getProperty("control.limits.rpmMax", Double.class, 1200.0))
-                .flowMin(env.getProperty("control.limits.flowMin", Double.class, 0.10))    // L/min
-                .flowMax(env.getProperty("control.limits.flowMax", Double.class, 0.60))
-                .pressMin(env.getProperty("control.limits.pressMin", Double.class, 1.2))   // bar
-                .pressMax(env.getProperty("control.limits.pressMax", Double.class, 2.5))
-                .detPctMin(env.getProperty("control.limits.detPctMin", Double.class, 0.02))// fracción 0..1
-                .detPctMax(env.getProperty("control.limits.detPctMax", Double.class, 0.06))
-                .dwellMin(env.getProperty("control.limits.dwellMin", Double.class, 2.0))   // s
-                .dwellMax(env.getProperty("control.limits.dwellMax", Double.class, 8.0))   // s
-                .passesMin(env.getProperty("control.limits.passesMin", Integer.class, 1))
-                .passesMax(env.getProperty("control.limits.passesMax", Integer.class, 3))
-                .maxDeltaRpm(env.getProperty("control.limits.maxDeltaRpm", Double.class, 150.0))
-                .build();
+        // ===== 1) Límites físicos y mínimos operativos (política precompilada, con override por panel) =====
+        ControlPolicy policy = policies.forPanel(panelId);
+        var limits = policy.limits();
+
+        // Estado previo de este robot (sesión, panel)
+        ControllerStateStore.ControllerState state = controllerState.get(sessionId, panelId);
+        SafetyGuard.Commands prev = state != null ? state.prevCommands() : null;
 
         // ===== 2) Proyección segura 0..1 → unidades =====
         List<String> safetyNotes = new ArrayList<>();
@@ -76,13 +78,14 @@ public class DecisionOrchestrator {
                 pr.getProposedCommands(), limits, prev, safetyNotes);
 
         // ===== 3) Anti-regresión por ventana =====
-        double[] ba = extractBeforeAfter(pr); // [beforePct, afterPct]
-        double before = ba[0];
-        double after  = ba[1];
+        AiWindowStatsDTO window = pr.getWindow();
+        boolean hasWindow = window != null && window.getBeforeDustPct() != null && window.getAfterDustPct() != null;
+        double before = hasWindow ? window.getBeforeDustPct() : DEFAULT_DUST_PCT;
+        double after  = hasWindow ? window.getAfterDustPct()  : DEFAULT_DUST_PCT;
 
-        double targetPct   = env.getProperty("control.target.dustPct", Double.class, 10.0);
-        double minDeltaPct = env.getProperty("control.target.minDeltaPct", Double.class, 5.0);
-        double targetFinal = env.getProperty("control.target.finalDustPct", Double.class, 2.0); // drive-to-zero band
+        double targetPct   = policy.targetDustPct();
+        double minDeltaPct = policy.minDeltaPct();
+        double targetFinal = policy.finalDustPct(); // drive-to-zero band
 
         applied = safetyGuard.antiRegression(applied, limits, before, after, targetPct, minDeltaPct, safetyNotes);
 
@@ -99,50 +102,50 @@ public class DecisionOrchestrator {
         }
 
         // ===== 3.2) Aplicar boosts enviados por la IA (contact/passes/speed) =====
-        Boosts boosts = parseBoosts(pr.getExplain()); // lee "boosts(c=.., p=.., v-=..)" si viene
+        AiBoostsDTO boosts = pr.getBoosts(); // ya tipado (el adaptador resuelve el formato legacy)
         if (boosts != null) {
             // dwell/contact
-            if (boosts.contactBoost > 0) {
-                applied.setDwellSec((int) clamp(applied.getDwellSec() + boosts.contactBoost, limits.getDwellMin(), limits.getDwellMax()));
-                safetyNotes.add("contact_boost+" + boosts.contactBoost);
+            if (boosts.getContactBoost() > 0) {
+                applied.setDwellSec((int) clamp(applied.getDwellSec() + boosts.getContactBoost(), limits.getDwellMin(), limits.getDwellMax()));
+                safetyNotes.add("contact_boost+" + boosts.getContactBoost());
             }
             // passes
-            if (boosts.passesBoost > 0) {
-                applied.setPasses((int) clamp(applied.getPasses() + boosts.passesBoost, limits.getPassesMin(), limits.getPassesMax()));
-                safetyNotes.add("passes_boost+" + boosts.passesBoost);
+            if (boosts.getPassesBoost() > 0) {
+                applied.setPasses((int) clamp(applied.getPasses() + boosts.getPassesBoost(), limits.getPassesMin(), limits.getPassesMax()));
+                safetyNotes.add("passes_boost+" + boosts.getPassesBoost());
             }
             // speed_down se aplica en nextParams (robotSpeed)
         }
 
         // ===== Persistimos lo aplicado (para monotonicidad en la próxima iteración) =====
-        prev = applied;
+        controllerState.recordApplied(sessionId, panelId, applied);
 
         // ===== 4) Construcción de params para el simulador =====
-        Map<String, Object> nextParams = new HashMap<>();
-        nextParams.put("brushRpm", applied.getBrushRpm());
-        nextParams.put("waterPressure", applied.getNozzlePressureBar());
-        nextParams.put("waterFlow", applied.getWaterFlowLpm());
+        ParamVector nextParams = new ParamVector()
+                .set(Param.BRUSH_RPM, applied.getBrushRpm())
+                .set(Param.WATER_PRESSURE, applied.getNozzlePressureBar())
+                .set(Param.WATER_FLOW, applied.getWaterFlowLpm());
 
         // Detergente: LPM = %mezcla (0..1) * caudal de agua (L/min)
         double detergentLpm = applied.getDetergentPct() * applied.getWaterFlowLpm();
-        nextParams.put("detergentFlowRate", detergentLpm);
+        nextParams.set(Param.DETERGENT_FLOW_RATE, detergentLpm);
 
         // Velocidad base y reducción por boosts (clamp 0.25–0.55 m/s)
-        double baseSpeed = env.getProperty("control.defaults.speedMs", Double.class, 0.35);
-        double speedDown = (boosts != null ? boosts.speedDown : 0.0);
+        double baseSpeed = policy.speedMs();
+        double speedDown = (boosts != null ? boosts.getSpeedDown() : 0.0);
         double finalSpeed = clamp(baseSpeed - speedDown, 0.25, 0.55);
-        nextParams.put("robotSpeed", finalSpeed);
+        nextParams.set(Param.ROBOT_SPEED, finalSpeed);
 
         // Overlap fijo/por defecto (ajusta a contrato de tu sim)
-        nextParams.put("passOverlap", env.getProperty("control.defaults.passOverlapFrac", Double.class, 0.30)); // fracción 0..1
-        nextParams.put("dwellTime", applied.getDwellSec());
-        nextParams.put("passes", applied.getPasses());
+        nextParams.set(Param.PASS_OVERLAP, policy.passOverlapFrac()); // fracción 0..1
+        nextParams.set(Param.DWELL_TIME, applied.getDwellSec());
+        nextParams.set(Param.PASSES, applied.getPasses());
 
         // Si IA recomienda "now", sube pisos mínimos (bump) adicionales
         if ("now".equalsIgnoreCase(pr.getRecommendedCleaningFrequency())) {
-            bumpFloor(nextParams, "brushRpm",     env.getProperty("control.bump.now.rpm",     Double.class, 800d));
-            bumpFloor(nextParams, "waterPressure",env.getProperty("control.bump.now.press",   Double.class, 1.8d));
-            bumpFloor(nextParams, "waterFlow",    env.getProperty("control.bump.now.flow",    Double.class, 0.35d));
+            nextParams.raiseTo(Param.BRUSH_RPM,      policy.bumpNowRpm());
+            nextParams.raiseTo(Param.WATER_PRESSURE, policy.bumpNowPress());
+            nextParams.raiseTo(Param.WATER_FLOW,     policy.bumpNowFlow());
         }
 
         // ===== 5) Cause / Mode =====
@@ -170,103 +173,51 @@ public class DecisionOrchestrator {
         evt.setTimestamp(LocalDateTime.now());
         evt.setPrev(prevRef);
         evt.setNext(nextRef);
-        evt.setParamsTarget(nextParams);
+        evt.setParamsVector(nextParams);
 
         SafetyGuard.Commands finalApplied = applied;
-        return simulatorRelay.relay(evt)
-                .doOnSuccess(r -> webSocketNotifier.sendRuntimeEvent("ai_decision", Map.of(
-                        "sessionId", sessionId,
-                        "proposed", pr.getProposedCommands(),
-                        "applied", finalApplied,
-                        "notes", safetyNotes,
-                        "explain", pr.getExplain(),
-                        "beforePct", before,
-                        "afterPct", after
-                ), sessionId, null))
-                .then();
-    }
-
-    // ====================== Helpers ======================
-
-    private void bumpFloor(Map<String, Object> m, String k, Double floor) {
-        Object v = m.get(k);
-        if (v instanceof Number) {
-            double cur = ((Number) v).doubleValue();
-            if (cur < floor) m.put(k, floor);
-        }
-    }
-
-    private static double clamp(double v, double lo, double hi) {
-        return Math.max(lo, Math.min(hi, v));
-    }
 
-    /** Extrae before/after (%) desde AiPredictResponse sin acoplarse a un nombre fijo. */
-    private double[] extractBeforeAfter(AiPredictResponse pr) {
-        Double before = tryGetter(pr, "getWindowBeforeDustPct");
-        Double after  = tryGetter(pr, "getWindowAfterDustPct");
-        if (before != null && after != null) return new double[]{before, after};
-
-        before = tryGetter(pr, "getBeforeDustPct");
-        after  = tryGetter(pr, "getAfterDustPct");
-        if (before != null && after != null) return new double[]{before, after};
-
-        Map<String, Object> stats = tryMapGetter(pr, "getStats");
-        if (stats == null) stats = tryMapGetter(pr, "getMetrics");
-        if (stats == null) stats = tryMapGetter(pr, "getWindow");
-        if (stats != null) {
-            Double b = pickFirst(stats, "beforeDustPct","before_pct","before","avgBeforeDustPct");
-            Double a = pickFirst(stats, "afterDustPct","after_pct","after","avgAfterDustPct");
-            if (b != null && a != null) return new double[]{b, a};
+        // ===== 7) Nada que cambiar: el robot ya corre con estos params (confirmados) =====
+        if (suppressor.isRedundant(state, nextParams)) {
+            log.debug("[ORCH] SKIP relay, params unchanged session={} panel={}", sessionId, panelId);
+            sendDecision(sessionId, pr, finalApplied, safetyNotes, before, after, false);
+            metrics.decision(pr.getSource(), DecisionOutcome.SUPPRESSED, start);
+            return Mono.empty();
         }
-        return new double[]{10.0, 10.0};
-    }
 
-    private Double pickFirst(Map<String, Object> m, String... keys) {
-        for (String k : keys) {
-            Object v = m.get(k);
-            if (v instanceof Number) return ((Number) v).doubleValue();
-        }
-        return null;
+        return simulatorRelay.relay(evt)
+                .doOnSuccess(r -> {
+                    RelayOutcome relay = SimulatorRelay.outcome(r);
+                    // solo cuenta como enviado si el simulador lo confirmó
+                    if (relay == RelayOutcome.OK) {
+                        controllerState.recordSent(sessionId, panelId, nextParams);
+                    }
+                    sendDecision(sessionId, pr, finalApplied, safetyNotes, before, after, true);
+                    metrics.decision(pr.getSource(), DecisionOutcome.of(relay), start);
+                })
+                .doOnError(e -> metrics.decision(pr.getSource(), DecisionOutcome.ERROR, start))
+                .doOnCancel(() -> metrics.decision(pr.getSource(), DecisionOutcome.CANCELLED, start))
+                .then();
     }
 
-    private Map<String, Object> tryMapGetter(Object obj, String method) {
-        try {
-            Method m = obj.getClass().getMethod(method);
-            Object out = m.invoke(obj);
-            if (out instanceof Map) {
-                //noinspection unchecked
-                return (Map<String, Object>) out;
-            }
-        } catch (Exception ignore) { }
-        return null;
+    private void sendDecision(String sessionId, AiPredictResponse pr, SafetyGuard.Commands applied,
+                              List<String> safetyNotes, double before, double after, boolean relayed) {
+        webSocketNotifier.sendRuntimeEvent("ai_decision", Map.of(
+                "sessionId", sessionId,
+                "source", String.valueOf(pr.getSource()),
+                "proposed", pr.getProposedCommands(),
+                "applied", applied,
+                "notes", safetyNotes,
+                "explain", pr.getExplain(),
+                "beforePct", before,
+                "afterPct", after,
+                "relayed", relayed
+        ), sessionId, null);
     }
 
-    private Double tryGetter(Object obj, String method) {
-        try {
-            Method m = obj.getClass().getMethod(method);
-            Object out = m.invoke(obj);
-            if (out instanceof Number) return ((Number) out).doubleValue();
-        } catch (Exception ignore) { }
-        return null;
-    }
+    // ====================== Helpers ======================
 
-    // ===== Parsing de boosts desde explain =====
-    private static final Pattern BOOSTS_RE =
-            Pattern.compile("boosts\\(c=(?<c>[-+]?\\d+),\\s*p=(?<p>[-+]?\\d+),\\s*v-=(?<v>[\\d.]+)\\)", Pattern.CASE_INSENSITIVE);
-
-    private Boosts parseBoosts(String explain) {
-        if (explain == null) return null;
-        Matcher m = BOOSTS_RE.matcher(explain);
-        if (!m.find()) return null;
-        try {
-            int c = Integer.parseInt(m.group("c"));
-            int p = Integer.parseInt(m.group("p"));
-            double v = Double.parseDouble(m.group("v"));
-            return new Boosts(c, p, v);
-        } catch (Exception e) {
-            return null;
-        }
+    private static double clamp(double v, double lo, double hi) {
+        return Math.max(lo, Math.min(hi, v));
     }
-
-    private record Boosts(int contactBoost, int passesBoost, double speedDown) {}
 }
\ No newline at end of file
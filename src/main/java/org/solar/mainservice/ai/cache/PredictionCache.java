@@ -0,0 +1,163 @@
+package org.solar.mainservice.ai.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.ai.dto.AiParamsDTO;
+import org.solar.mainservice.ai.dto.AiPointDTO;
+import org.solar.mainservice.ai.dto.AiPredictResponse;
+import org.solar.mainservice.ai.dto.AiWindowFeaturesDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memoización de /predict por huella cuantizada de la ventana (polvo, potencia, params, temperatura).
+ * En estado estacionario ventanas consecutivas caen en la misma huella y se responde sin ir a la IA.
+ * Las respuestas guardadas se tratan como solo lectura.
+ */
+@Slf4j
+@Component
+public class PredictionCache {
+
+    @Value("${ai.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.cache.ttl-ms:10000}")
+    private long ttlMs;
+
+    @Value("${ai.cache.max-entries:5000}")
+    private int maxEntries;
+
+    @Value("${ai.cache.quantization.dust:0.02}")
+    private double dustStep;          // índice 0..1
+
+    @Value("${ai.cache.quantization.power:5.0}")
+    private double powerStep;         // W
+
+    @Value("${ai.cache.quantization.temperature:1.0}")
+    private double temperatureStep;   // °C
+
+    @Value("${ai.cache.quantization.params-rel:0.05}")
+    private double paramsRelStep;     // paso relativo (5%) para params de distinta escala
+
+    private record Entry(AiPredictResponse response, long expiresAtNanos) {}
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Huella de 64 bits de la ventana cuantizada (incluye el panel para no mezclar robots).
+     * Con features (modo features/hybrid) se suman media y tendencia, ya que no viajan todos los puntos.
+     */
+    public long fingerprint(List<AiPointDTO> points, AiWindowFeaturesDTO features) {
+        long h = 0x9E3779B97F4A7C15L;
+        if (!points.isEmpty()) h = mix(h, Objects.hashCode(points.get(0).getPanelId()));
+        h = mix(h, points.size());
+        for (AiPointDTO p : points) {
+            h = mix(h, bucket(p.getDustIndex(), dustStep));
+            h = mix(h, bucket(p.getPowerOutput(), powerStep));
+            h = mix(h, bucket(p.getTemperature(), temperatureStep));
+            AiParamsDTO prm = p.getParams();
+            if (prm != null) {
+                h = mix(h, relBucket(prm.getBrushRpm()));
+                h = mix(h, relBucket(prm.getWaterPressure()));
+                h = mix(h, relBucket(prm.getDetergentFlowRate()));
+                h = mix(h, relBucket(prm.getRobotSpeed()));
+                h = mix(h, relBucket(prm.getPassOverlap()));
+                h = mix(h, relBucket(prm.getDwellTime()));
+            }
+        }
+        if (features != null) {
+            h = mix(h, features.getCount());
+            if (features.getDustIndex() != null) {
+                h = mix(h, bucket(features.getDustIndex().getMean(), dustStep));
+                h = mix(h, bucket(features.getDustIndex().getSlope() * features.getCount(), dustStep));
+            }
+            if (features.getPowerOutput() != null) {
+                h = mix(h, bucket(features.getPowerOutput().getMean(), powerStep));
+                h = mix(h, bucket(features.getPowerOutput().getSlope() * features.getCount(), powerStep));
+            }
+            if (features.getGrid() != null) h = mix(h, bucket(features.getGrid().getMeanDelta(), dustStep));
+        }
+        return h;
+    }
+
+    public AiPredictResponse get(long key) {
+        Entry e = entries.get(key);
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (System.nanoTime() - e.expiresAtNanos() > 0) {
+            entries.remove(key, e);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return e.response();
+    }
+
+    public void put(long key, AiPredictResponse response) {
+        entries.put(key, new Entry(response, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs)));
+        if (entries.size() > maxEntries) {
+            evictExpired();
+            // Si sigue lleno, se descartan entradas cualesquiera hasta volver al tope
+            Iterator<Long> it = entries.keySet().iterator();
+            while (entries.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ai.cache.sweep-interval-ms:30000}")
+    void evictExpired() {
+        long now = System.nanoTime();
+        entries.values().removeIf(e -> {
+            boolean expired = now - e.expiresAtNanos() > 0;
+            if (expired) evictions.incrementAndGet();
+            return expired;
+        });
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.get(), m = misses.get();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("entries", entries.size());
+        out.put("hits", h);
+        out.put("misses", m);
+        out.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        out.put("evictions", evictions.get());
+        return out;
+    }
+
+    private static long bucket(double v, double step) {
+        return step > 0 ? Math.round(v / step) : Double.doubleToLongBits(v);
+    }
+
+    private long relBucket(Double v) {
+        if (v == null) return Long.MIN_VALUE;
+        if (v <= 0 || paramsRelStep <= 0) return Double.doubleToLongBits(v);
+        return Math.round(Math.log(v) / Math.log1p(paramsRelStep));
+    }
+
+    private static long mix(long h, long v) {
+        h ^= v + 0x9E3779B97F4A7C15L + (h << 6) + (h >>> 2);
+        return h * 0xBF58476D1CE4E5B9L;
+    }
+}
@@ -0,0 +1,226 @@
+package org.solar.mainservice.ai.client;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.ai.codec.AiRequestCodec;
+import org.solar.mainservice.ai.dto.AiBatchPredictRequest;
+import org.solar.mainservice.ai.dto.AiBatchPredictResponse;
+import org.solar.mainservice.ai.dto.AiPredictRequest;
+import org.solar.mainservice.ai.dto.AiPredictResponse;
+import org.solar.mainservice.ai.mapper.AiResponseAdapter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Junta ventanas listas de varias sesiones durante un intervalo corto (o hasta un tamaño máximo)
+ * y las manda en una sola llamada a /predict/batch. Cada respuesta vuelve a quien la pidió.
+ * Si la IA no soporta batch, se cae a llamadas individuales.
+ * La cola es acotada (si la IA se traba, lo que no entra queda sin predicción) y antes de cada envío
+ * se descartan las ventanas cuyo llamador ya no espera (timeout o cancelación).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AiBatchAggregator {
+
+    private static final Set<HttpStatus> UNSUPPORTED = Set.of(
+            HttpStatus.NOT_FOUND, HttpStatus.METHOD_NOT_ALLOWED,
+            HttpStatus.UNSUPPORTED_MEDIA_TYPE, HttpStatus.NOT_IMPLEMENTED);
+
+    private final WebClient aiWebClient;
+    private final AiResponseAdapter responseAdapter;
+    private final AiRequestCodec codec;
+
+    @Value("${ai.batch.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.batch.path:/predict/batch}")
+    private String path;
+
+    @Value("${ai.batch.max-size:32}")
+    private int maxSize;
+
+    @Value("${ai.batch.max-wait-ms:20}")
+    private long maxWaitMs;
+
+    @Value("${ai.batch.max-concurrent:4}")
+    private int maxConcurrent;
+
+    /** Ventanas esperando lote; con la cola llena la ventana se responde vacía (el gateway decide el respaldo). */
+    @Value("${ai.batch.queue-capacity:1024}")
+    private int queueCapacity;
+
+    /** Tras detectar que no hay batch, se vuelve a probar pasado este tiempo. */
+    @Value("${ai.batch.retry-unsupported-ms:300000}")
+    private long retryUnsupportedMs;
+
+    private Sinks.Many<Pending> queue;
+    private final AtomicLong ids = new AtomicLong();
+    private volatile long unsupportedUntil;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedItems = new AtomicLong();
+    private final AtomicLong singleFallbacks = new AtomicLong();
+    private final AtomicLong overflow = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    private record Pending(String id,
+                           AiPredictRequest request,
+                           Function<AiPredictRequest, Mono<AiPredictResponse>> single,
+                           Sinks.One<AiPredictResponse> result,
+                           long deadlineNanos,
+                           AtomicBoolean cancelled) {
+
+        /** El llamador cortó por timeout/cancelación (o está por hacerlo): no vale la pena enviarla. */
+        boolean stale(long now) {
+            return cancelled.get() || now - deadlineNanos >= 0;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        queue = Sinks.many().unicast().onBackpressureBuffer(Queues.<Pending>get(queueCapacity).get());
+        queue.asFlux()
+                .bufferTimeout(maxSize, Duration.ofMillis(maxWaitMs), true)
+                .flatMap(this::dispatch, maxConcurrent)
+                .subscribe();
+    }
+
+    public boolean isActive() {
+        return enabled && System.currentTimeMillis() >= unsupportedUntil;
+    }
+
+    /**
+     * Encola la ventana para el próximo lote. {@code single} es la llamada individual que se usa
+     * como respaldo si el lote no se puede enviar; pasado {@code timeout} la ventana ya no se envía.
+     */
+    public Mono<AiPredictResponse> submit(AiPredictRequest request,
+                                          Function<AiPredictRequest, Mono<AiPredictResponse>> single,
+                                          Duration timeout) {
+        return Mono.defer(() -> {
+            Pending p = new Pending(String.valueOf(ids.incrementAndGet()), request, single, Sinks.one(),
+                    System.nanoTime() + timeout.toNanos(), new AtomicBoolean());
+            Sinks.EmitResult res;
+            synchronized (this) {
+                res = queue.tryEmitNext(p);
+            }
+            if (!res.isSuccess()) {
+                overflow.incrementAndGet();
+                return Mono.<AiPredictResponse>empty();
+            }
+            return p.result().asMono().doOnCancel(() -> p.cancelled().set(true));
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("active", isActive());
+        m.put("batches", batches.get());
+        m.put("batchedItems", batchedItems.get());
+        m.put("singleFallbacks", singleFallbacks.get());
+        m.put("queueCapacity", queueCapacity);
+        m.put("overflow", overflow.get());
+        m.put("expired", expired.get());
+        return m;
+    }
+
+    private Mono<Void> dispatch(List<Pending> buffered) {
+        List<Pending> batch = live(buffered);
+        if (batch.isEmpty()) return Mono.empty();
+        if (batch.size() == 1 || !isActive()) {
+            batch.forEach(this::sendSingle);
+            return Mono.empty();
+        }
+
+        List<AiBatchPredictRequest.Item> items = new ArrayList<>(batch.size());
+        for (Pending p : batch) items.add(new AiBatchPredictRequest.Item(p.id(), p.request().getPoints(), p.request().getFeatures(), null));
+
+        return codec.post(aiWebClient, path, new AiBatchPredictRequest(items), AiBatchPredictResponse.class)
+                .doOnNext(res -> {
+                    batches.incrementAndGet();
+                    batchedItems.addAndGet(batch.size());
+                    route(batch, res.getBody(), res.getHeaders().getFirst(AiResponseAdapter.SCHEMA_HEADER));
+                })
+                .onErrorResume(AiBatchAggregator::isUnsupported, e -> {
+                    unsupportedUntil = System.currentTimeMillis() + retryUnsupportedMs;
+                    log.warn("[AI] batch endpoint not supported ({}), falling back to single calls", e.getMessage());
+                    batch.forEach(this::sendSingle);
+                    return Mono.empty();
+                })
+                .onErrorResume(e -> {
+                    log.warn("[AI] batch of {} failed: {}", batch.size(), e.toString());
+                    batch.forEach(p -> p.result().tryEmitError(e));
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /** Saca del lote lo que ya nadie espera (así no ocupa lugar ni llamadas a la IA). */
+    private List<Pending> live(List<Pending> buffered) {
+        long now = System.nanoTime();
+        List<Pending> out = new ArrayList<>(buffered.size());
+        for (Pending p : buffered) {
+            if (p.stale(now)) {
+                expired.incrementAndGet();
+                p.result().tryEmitEmpty();
+            } else {
+                out.add(p);
+            }
+        }
+        return out;
+    }
+
+    private static boolean isUnsupported(Throwable e) {
+        return e instanceof WebClientResponseException w
+                && UNSUPPORTED.contains(HttpStatus.resolve(w.getStatusCode().value()));
+    }
+
+    private void route(List<Pending> batch, AiBatchPredictResponse body, String schemaHeader) {
+        List<AiBatchPredictResponse.Result> results = body != null && body.getResults() != null
+                ? body.getResults() : List.of();
+        Map<String, Pending> byId = new HashMap<>();
+        for (Pending p : batch) byId.put(p.id(), p);
+
+        for (int i = 0; i < results.size(); i++) {
+            AiBatchPredictResponse.Result r = results.get(i);
+            Pending p = r.getId() != null ? byId.remove(r.getId()) : (i < batch.size() ? byId.remove(batch.get(i).id()) : null);
+            if (p == null) continue;
+            if (r.getPrediction() != null) {
+                p.result().tryEmitValue(responseAdapter.normalize(r.getPrediction(), schemaHeader));
+            } else {
+                if (r.getError() != null) log.warn("[AI] batch item {} failed: {}", r.getId(), r.getError());
+                p.result().tryEmitEmpty();
+            }
+        }
+        // Lo que la IA no devolvió queda sin predicción
+        byId.values().forEach(p -> p.result().tryEmitEmpty());
+    }
+
+    private void sendSingle(Pending p) {
+        singleFallbacks.incrementAndGet();
+        p.single().apply(p.request()).subscribe(
+                v -> p.result().tryEmitValue(v),
+                e -> p.result().tryEmitError(e),
+                () -> p.result().tryEmitEmpty());
+    }
+}
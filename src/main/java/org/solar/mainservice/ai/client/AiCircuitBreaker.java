@@ -0,0 +1,127 @@
+package org.solar.mainservice.ai.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker de /predict sobre las últimas N llamadas. Abierto: se responde vacío al instante
+ * en lugar de esperar el timeout. Pasado open-ms deja pasar unas pocas llamadas de prueba (half-open).
+ */
+@Slf4j
+@Component
+public class AiCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @Value("${ai.resilience.breaker.window-size:20}")
+    private int windowSize;
+
+    @Value("${ai.resilience.breaker.min-calls:10}")
+    private int minCalls;
+
+    @Value("${ai.resilience.breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${ai.resilience.breaker.open-ms:10000}")
+    private long openMs;
+
+    @Value("${ai.resilience.breaker.half-open-calls:2}")
+    private int halfOpenCalls;
+
+    private State state = State.CLOSED;
+    private boolean[] outcomes;       // true = falla
+    private int next;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private int halfOpenInFlight;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong transitions = new AtomicLong();
+
+    /** false si el circuito está abierto (o sin cupo de prueba): no llamar a la IA. */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMs) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenInFlight >= halfOpenCalls) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            halfOpenInFlight++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            transition(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transition(State.OPEN);
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minCalls && (double) failures / recorded >= failureRateThreshold) {
+            transition(State.OPEN);
+        }
+    }
+
+    /** La llamada se canceló sin resultado: solo libera el cupo de prueba. */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && halfOpenInFlight > 0) halfOpenInFlight--;
+    }
+
+    public synchronized State state() { return state; }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("state", state);
+        m.put("failureRate", recorded == 0 ? 0.0 : (double) failures / recorded);
+        m.put("recordedCalls", recorded);
+        m.put("rejected", rejected.get());
+        m.put("transitions", transitions.get());
+        return m;
+    }
+
+    private void record(boolean failure) {
+        if (outcomes == null) outcomes = new boolean[Math.max(1, windowSize)];
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) failures--;
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) failures++;
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void transition(State to) {
+        log.warn("[AI] circuit {} -> {}", state, to);
+        state = to;
+        transitions.incrementAndGet();
+        halfOpenInFlight = 0;
+        if (to == State.OPEN) openedAt = System.currentTimeMillis();
+        if (to == State.CLOSED) {
+            outcomes = null;
+            next = 0;
+            recorded = 0;
+            failures = 0;
+        }
+    }
+}
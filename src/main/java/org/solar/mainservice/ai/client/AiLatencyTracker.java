@@ -0,0 +1,80 @@
+package org.solar.mainservice.ai.client;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latencias recientes de /predict (ventana deslizante de N muestras) para percentiles,
+ * más un histograma acumulado por buckets fijos.
+ */
+@Component
+public class AiLatencyTracker {
+
+    private static final long[] BUCKETS_MS = {10, 25, 50, 100, 250, 500, 1000, 2000, 5000};
+
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS_MS.length + 1);
+
+    public AiLatencyTracker(@Value("${ai.resilience.latency.samples:256}") int capacity) {
+        this.samples = new long[Math.max(1, capacity)];
+    }
+
+    public void record(long millis) {
+        int b = 0;
+        while (b < BUCKETS_MS.length && millis > BUCKETS_MS[b]) b++;
+        histogram.incrementAndGet(b);
+        synchronized (this) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) count++;
+        }
+    }
+
+    /** Percentil (0..1) de las últimas muestras; -1 si todavía no hay datos. */
+    public long percentile(double p) {
+        return percentiles(p)[0];
+    }
+
+    /** Varios percentiles con una sola copia y orden de la ventana; -1 en cada uno si no hay datos. */
+    public long[] percentiles(double... ps) {
+        long[] out = new long[ps.length];
+        long[] copy;
+        synchronized (this) {
+            if (count == 0) {
+                Arrays.fill(out, -1);
+                return out;
+            }
+            copy = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(copy);
+        for (int i = 0; i < ps.length; i++) {
+            int idx = (int) Math.ceil(ps[i] * copy.length) - 1;
+            out[i] = copy[Math.max(0, Math.min(copy.length - 1, idx))];
+        }
+        return out;
+    }
+
+    public synchronized int sampleCount() { return count; }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("samples", sampleCount());
+        long[] p = percentiles(0.50, 0.95, 0.99);
+        m.put("p50Ms", p[0]);
+        m.put("p95Ms", p[1]);
+        m.put("p99Ms", p[2]);
+        Map<String, Long> h = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS_MS.length; i++) h.put("le_" + BUCKETS_MS[i], histogram.get(i));
+        h.put("le_inf", histogram.get(BUCKETS_MS.length));
+        m.put("histogramMs", h);
+        return m;
+    }
+}
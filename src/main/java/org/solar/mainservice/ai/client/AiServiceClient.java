@@ -2,20 +2,32 @@ package org.solar.mainservice.ai.client;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.ai.cache.PredictionCache;
+import org.solar.mainservice.ai.codec.AiRequestCodec;
 import org.solar.mainservice.ai.dto.AiPointDTO;
 import org.solar.mainservice.ai.dto.AiPredictRequest;
 import org.solar.mainservice.ai.dto.AiPredictResponse;
+import org.solar.mainservice.ai.dto.AiWindowFeaturesDTO;
 import org.solar.mainservice.ai.mapper.AiPointMapper;
+import org.solar.mainservice.ai.mapper.AiResponseAdapter;
+import org.solar.mainservice.metrics.PipelineMetrics;
+import org.solar.mainservice.metrics.PipelineMetrics.AiOutcome;
 import org.solar.mainservice.model.TelemetryReading;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Service
@@ -24,27 +36,159 @@ public class AiServiceClient {
 
     private final WebClient aiWebClient;
     private final AiPointMapper mapper;
+    private final AiResponseAdapter responseAdapter;
+    private final AiBatchAggregator batchAggregator;
+    private final PredictionCache cache;
+    private final AiCircuitBreaker breaker;
+    private final AiLatencyTracker latency;
+    private final AiRequestCodec codec;
+    private final PipelineMetrics metrics;
 
     @Value("${ai.enabled:true}") boolean enabled;
 
-    public Mono<AiPredictResponse> sendToAi(List<TelemetryReading> last10) {
+    /** points = ventana completa | features = features + último punto | hybrid = features + últimos N puntos */
+    @Value("${ai.request.mode:points}") String requestMode;
+    @Value("${ai.request.hybrid-points:3}") int hybridPoints;
+
+    /** Techo del timeout (y valor fijo mientras no haya muestras de latencia). */
+    @Value("${ai.timeout-ms:2000}") long maxTimeoutMs;
+
+    @Value("${ai.resilience.timeout.adaptive:true}") boolean adaptiveTimeout;
+    @Value("${ai.resilience.timeout.min-ms:300}") long minTimeoutMs;
+    @Value("${ai.resilience.timeout.percentile:0.99}") double timeoutPercentile;
+    @Value("${ai.resilience.timeout.multiplier:2.0}") double timeoutMultiplier;
+    @Value("${ai.resilience.timeout.min-samples:20}") int minSamples;
+
+    @Value("${ai.resilience.hedge.enabled:false}") boolean hedgeEnabled;
+    @Value("${ai.resilience.hedge.percentile:0.95}") double hedgePercentile;
+    @Value("${ai.resilience.hedge.min-delay-ms:50}") long hedgeMinDelayMs;
+
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    /**
+     * @param window   ventana DESC (índice 0 = más reciente)
+     * @param features features incrementales de la sesión; si es null se envía la ventana completa
+     */
+    public Mono<AiPredictResponse> sendToAi(List<TelemetryReading> window, AiWindowFeaturesDTO features) {
         if (!enabled) return Mono.empty();
+        long start = System.nanoTime();
 
-        List<AiPointDTO> points = last10.stream()
-                .map(mapper::toAiPoint)
-                .collect(Collectors.toList());
+        boolean withFeatures = features != null && !"points".equalsIgnoreCase(requestMode);
+        int rawPoints = !withFeatures ? window.size()
+                : "hybrid".equalsIgnoreCase(requestMode) ? Math.min(Math.max(1, hybridPoints), window.size())
+                : 1; // el último punto lleva ids, timestamp y params vigentes
+        List<AiPointDTO> points = new ArrayList<>(rawPoints);
+        for (int i = 0; i < rawPoints; i++) points.add(mapper.toAiPoint(window.get(i)));
+
+        // Ventana casi idéntica a una reciente → misma decisión, sin ir a la IA
+        long key = cache.isEnabled() ? cache.fingerprint(points, withFeatures ? features : null) : 0L;
+        if (cache.isEnabled()) {
+            AiPredictResponse hit = cache.get(key);
+            if (hit != null) {
+                metrics.ai(AiOutcome.CACHE, start);
+                // la huella no incluye la sesión: el hit puede venir de otra, se re-etiqueta con la que pide
+                AiPointDTO latest = points.isEmpty() ? null : points.get(0);
+                return Mono.just(hit
+                        .withSessionId(latest != null ? latest.getSessionId() : hit.getSessionId())
+                        .withTimestamp(latest != null ? latest.getTimestamp() : hit.getTimestamp())
+                        .withSource("cache"));
+            }
+        }
+
+        // IA caída: fallar rápido en vez de esperar el timeout
+        if (!breaker.tryAcquire()) {
+            metrics.ai(AiOutcome.REJECTED, start);
+            return Mono.empty();
+        }
 
         AiPredictRequest body = new AiPredictRequest();
         body.setPoints(points);
+        if (withFeatures) body.setFeatures(features);
 
-        return aiWebClient.post()
-                .uri("/predict")
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(body)
-                .retrieve()
-                .bodyToMono(AiPredictResponse.class) // o PredictionResult.class si prefieres
-                .timeout(Duration.ofSeconds(2))
-                .doOnError(e -> log.warn("AI offline: {}", e.toString()))
+        long[] observed = latency.percentiles(timeoutPercentile, hedgePercentile); // una sola copia+orden por llamada
+        Duration timeout = currentTimeout(observed[0]);
+        Mono<AiPredictResponse> primary = batchAggregator.isActive()
+                ? batchAggregator.submit(body, this::predictOne, timeout)
+                : predictOne(body);
+
+        long sent = System.nanoTime();
+        return hedged(primary, body, observed[1])
+                .timeout(timeout)
+                .doOnNext(pr -> {
+                    latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sent));
+                    if (cache.isEnabled()) cache.put(key, pr);
+                })
+                .doOnSuccess(pr -> {
+                    // vacío = ítem del lote con error o cola del lote llena: no es una respuesta sana
+                    if (pr != null) breaker.onSuccess();
+                    else breaker.onFailure();
+                    metrics.ai(pr != null ? AiOutcome.SUCCESS : AiOutcome.EMPTY, start);
+                })
+                .doOnError(e -> {
+                    breaker.onFailure();
+                    boolean timedOut = e instanceof TimeoutException;
+                    if (timedOut) {
+                        timeouts.incrementAndGet();
+                        // sin esta muestra una IA más lenta que el timeout nunca subiría el percentil
+                        latency.record(timeout.toMillis());
+                    }
+                    metrics.ai(timedOut ? AiOutcome.TIMEOUT : AiOutcome.ERROR, start);
+                    log.warn("AI offline: {}", e.toString());
+                })
+                .doOnCancel(breaker::release)
                 .onErrorResume(e -> Mono.empty()); // ← NO propagar, mantén tu comportamiento
     }
-}
\ No newline at end of file
+
+    /** Una ventana, una llamada a /predict. */
+    Mono<AiPredictResponse> predictOne(AiPredictRequest body) {
+        return codec.post(aiWebClient, "/predict", body, AiPredictResponse.class)
+                .flatMap(res -> Mono.justOrEmpty(res.getBody())
+                        .map(pr -> responseAdapter.normalize(pr, res.getHeaders().getFirst(AiResponseAdapter.SCHEMA_HEADER))));
+    }
+
+    /**
+     * Timeout = percentil observado × multiplicador, acotado a [min-ms, ai.timeout-ms].
+     * Sin suficientes muestras, o en las pruebas del breaker half-open, se usa el techo.
+     */
+    Duration currentTimeout() {
+        return currentTimeout(latency.percentile(timeoutPercentile));
+    }
+
+    private Duration currentTimeout(long observedPercentileMs) {
+        if (!adaptiveTimeout || latency.sampleCount() < minSamples
+                || breaker.state() == AiCircuitBreaker.State.HALF_OPEN) return Duration.ofMillis(maxTimeoutMs);
+        long observed = (long) (observedPercentileMs * timeoutMultiplier);
+        return Duration.ofMillis(Math.max(minTimeoutMs, Math.min(maxTimeoutMs, observed)));
+    }
+
+    /**
+     * Si la primaria no respondió tras ~p95, lanza una segunda llamada directa y gana la primera que llegue.
+     * Si ninguna trae valor: vacío si ambas vinieron vacías, o el error de la que falló.
+     */
+    private Mono<AiPredictResponse> hedged(Mono<AiPredictResponse> primary, AiPredictRequest body, long hedgePercentileMs) {
+        if (!hedgeEnabled || latency.sampleCount() < minSamples) return primary;
+        long delayMs = Math.max(hedgeMinDelayMs, hedgePercentileMs);
+        Mono<AiPredictResponse> backup = Mono.delay(Duration.ofMillis(delayMs))
+                .doOnNext(t -> hedges.incrementAndGet())
+                .then(Mono.defer(() -> predictOne(body)));
+        return Mono.firstWithValue(primary, backup)
+                .onErrorResume(NoSuchElementException.class, e -> {
+                    for (Throwable t : Exceptions.unwrapMultiple(e.getCause())) {
+                        if (!(t instanceof NoSuchElementException)) return Mono.error(t);
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("breaker", breaker.stats());
+        m.put("latency", latency.stats());
+        m.put("currentTimeoutMs", currentTimeout().toMillis());
+        m.put("timeouts", timeouts.get());
+        m.put("hedgeEnabled", hedgeEnabled);
+        m.put("hedges", hedges.get());
+        return m;
+    }
+}
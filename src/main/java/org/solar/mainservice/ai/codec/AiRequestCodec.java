@@ -0,0 +1,252 @@
+package org.solar.mainservice.ai.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.ai.dto.AiBatchPredictRequest;
+import org.solar.mainservice.ai.dto.AiColumnarWindowDTO;
+import org.solar.mainservice.ai.dto.AiParamsDTO;
+import org.solar.mainservice.ai.dto.AiPointDTO;
+import org.solar.mainservice.ai.dto.AiPredictRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Codifica los cuerpos hacia la IA en el formato negociado (se arma en AiWebClientConfig):
+ * JSON o CBOR, con la ventana en filas (points) o en columnas. El Content-Type identifica la variante;
+ * si la IA responde 415 se vuelve a JSON en filas y no se reintenta hasta pasado retry-unsupported-ms.
+ * Las respuestas siguen llegando en JSON.
+ */
+@Slf4j
+public class AiRequestCodec {
+
+    public static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+    public static final MediaType COLUMNAR_JSON = MediaType.parseMediaType("application/vnd.solar.columnar+json");
+    public static final MediaType COLUMNAR_CBOR = MediaType.parseMediaType("application/vnd.solar.columnar+cbor");
+
+    public enum Format { JSON, CBOR }
+    public enum Layout { ROWS, COLUMNAR }
+
+    private record Encoded(byte[] bytes, MediaType contentType) {}
+
+    private static final class Counters {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong encodeNanos = new AtomicLong();
+    }
+
+    private final ObjectMapper json;
+    private final ObjectMapper cbor;     // null si el formato es JSON
+    private final Format format;
+    private final Layout layout;
+    private final long retryUnsupportedMs;
+    private final int compareEvery;
+
+    private volatile long unsupportedUntil;
+
+    private final Map<String, Counters> byType = new ConcurrentHashMap<>();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong negotiatedRequests = new AtomicLong();
+    private final AtomicLong comparedBytes = new AtomicLong();
+    private final AtomicLong comparedJsonBytes = new AtomicLong();
+
+    public AiRequestCodec(ObjectMapper json, ObjectMapper cbor, Format format, Layout layout,
+                          long retryUnsupportedMs, int compareEvery) {
+        this.json = json;
+        this.cbor = cbor;
+        this.format = format;
+        this.layout = layout;
+        this.retryUnsupportedMs = retryUnsupportedMs;
+        this.compareEvery = compareEvery;
+    }
+
+    /** POST con el formato vigente; ante 415 reintenta una vez en JSON plano. */
+    public <T> Mono<ResponseEntity<T>> post(WebClient client, String uri, Object body, Class<T> type) {
+        if (!isNegotiated()) return exchange(client, uri, body, type, false);
+
+        return exchange(client, uri, body, type, true)
+                .onErrorResume(AiRequestCodec::isUnsupportedMediaType, e -> {
+                    unsupportedUntil = System.currentTimeMillis() + retryUnsupportedMs;
+                    fallbacks.incrementAndGet();
+                    log.warn("[AI] {} not accepted by AI service, falling back to JSON", contentType(true));
+                    return exchange(client, uri, body, type, false);
+                });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("format", format);
+        m.put("layout", layout);
+        m.put("active", contentType(isNegotiated()).toString());
+        m.put("fallbacks", fallbacks.get());
+        Map<String, Object> types = new LinkedHashMap<>();
+        byType.forEach((t, c) -> {
+            long n = Math.max(1, c.count.get());
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("requests", c.count.get());
+            s.put("bytes", c.bytes.get());
+            s.put("avgBytes", c.bytes.get() / n);
+            s.put("avgEncodeMicros", c.encodeNanos.get() / n / 1000);
+            types.put(t, s);
+        });
+        m.put("byContentType", types);
+        // Muestreo: cuánto pesa lo enviado frente al mismo cuerpo en JSON por filas
+        if (comparedJsonBytes.get() > 0) {
+            m.put("sizeRatioVsJson", (double) comparedBytes.get() / comparedJsonBytes.get());
+        }
+        return m;
+    }
+
+    private <T> Mono<ResponseEntity<T>> exchange(WebClient client, String uri, Object body, Class<T> type,
+                                                 boolean negotiated) {
+        return Mono.fromCallable(() -> encode(body, negotiated))
+                .flatMap(enc -> client.post()
+                        .uri(uri)
+                        .contentType(enc.contentType())
+                        .bodyValue(enc.bytes())
+                        .retrieve()
+                        .toEntity(type));
+    }
+
+    private boolean isNegotiated() {
+        return (format != Format.JSON || layout != Layout.ROWS) && System.currentTimeMillis() >= unsupportedUntil;
+    }
+
+    private MediaType contentType(boolean negotiated) {
+        if (!negotiated) return MediaType.APPLICATION_JSON;
+        if (layout == Layout.COLUMNAR) return format == Format.CBOR ? COLUMNAR_CBOR : COLUMNAR_JSON;
+        return format == Format.CBOR ? CBOR : MediaType.APPLICATION_JSON;
+    }
+
+    private Encoded encode(Object body, boolean negotiated) throws Exception {
+        MediaType type = contentType(negotiated);
+        ObjectMapper mapper = negotiated && format == Format.CBOR ? cbor : json;
+
+        long start = System.nanoTime();
+        Object shaped = negotiated && layout == Layout.COLUMNAR ? toColumnar(body) : body;
+        byte[] bytes = mapper.writeValueAsBytes(shaped);
+        long elapsed = System.nanoTime() - start;
+
+        Counters c = byType.computeIfAbsent(type.toString(), k -> new Counters());
+        c.count.incrementAndGet();
+        c.bytes.addAndGet(bytes.length);
+        c.encodeNanos.addAndGet(elapsed);
+
+        if (negotiated && compareEvery > 0 && negotiatedRequests.incrementAndGet() % compareEvery == 0) {
+            comparedBytes.addAndGet(bytes.length);
+            comparedJsonBytes.addAndGet(json.writeValueAsBytes(body).length);
+        }
+        return new Encoded(bytes, type);
+    }
+
+    // ===== layout columnar =====
+
+    private static Object toColumnar(Object body) {
+        if (body instanceof AiPredictRequest r) {
+            AiPredictRequest out = new AiPredictRequest();
+            out.setFeatures(r.getFeatures());
+            out.setColumns(columns(r.getPoints()));
+            return out;
+        }
+        if (body instanceof AiBatchPredictRequest b && b.getItems() != null) {
+            List<AiBatchPredictRequest.Item> items = new ArrayList<>(b.getItems().size());
+            for (AiBatchPredictRequest.Item it : b.getItems()) {
+                items.add(new AiBatchPredictRequest.Item(it.getId(), null, it.getFeatures(), columns(it.getPoints())));
+            }
+            return new AiBatchPredictRequest(items);
+        }
+        return body;
+    }
+
+    static AiColumnarWindowDTO columns(List<AiPointDTO> points) {
+        if (points == null) return null;
+        int n = points.size();
+        long[] ts = new long[n];
+        double[] dust = new double[n], power = new double[n], temp = new double[n], hum = new double[n];
+        Double[] vib = new Double[n], risk = new Double[n], lat = new Double[n], lng = new Double[n];
+        Double[] speed = new Double[n], rpm = new Double[n], press = new Double[n],
+                flow = new Double[n], overlap = new Double[n], dwell = new Double[n];
+        boolean anyLocation = false, anyParams = false;
+
+        for (int i = 0; i < n; i++) {
+            AiPointDTO p = points.get(i);
+            ts[i] = epochMillis(p.getTimestamp());
+            dust[i] = p.getDustIndex();
+            power[i] = p.getPowerOutput();
+            temp[i] = p.getTemperature();
+            hum[i] = p.getHumidity();
+            vib[i] = p.getVibration();
+            risk[i] = p.getMicroFractureRisk();
+            if (p.getLocation() != null) {
+                anyLocation = true;
+                lat[i] = p.getLocation().get("lat");
+                lng[i] = p.getLocation().get("lng");
+            }
+            AiParamsDTO prm = p.getParams();
+            if (prm != null) {
+                anyParams = true;
+                speed[i] = prm.getRobotSpeed();
+                rpm[i] = prm.getBrushRpm();
+                press[i] = prm.getWaterPressure();
+                flow[i] = prm.getDetergentFlowRate();
+                overlap[i] = prm.getPassOverlap();
+                dwell[i] = prm.getDwellTime();
+            }
+        }
+
+        AiColumnarWindowDTO c = new AiColumnarWindowDTO();
+        if (n > 0) {
+            c.setSessionId(points.get(0).getSessionId());
+            c.setPanelId(points.get(0).getPanelId());
+        }
+        c.setTs(ts);
+        c.setDustIndex(dust);
+        c.setPowerOutput(power);
+        c.setTemperature(temp);
+        c.setHumidity(hum);
+        c.setVibration(vib);
+        c.setMicroFractureRisk(risk);
+        if (anyLocation) {
+            c.setLat(lat);
+            c.setLng(lng);
+        }
+        if (anyParams) {
+            AiColumnarWindowDTO.Params cp = new AiColumnarWindowDTO.Params();
+            cp.setRobotSpeed(speed);
+            cp.setBrushRpm(rpm);
+            cp.setWaterPressure(press);
+            cp.setDetergentFlowRate(flow);
+            cp.setPassOverlap(overlap);
+            cp.setDwellTime(dwell);
+            c.setParams(cp);
+        }
+        return c;
+    }
+
+    /** Los timestamps del mapper son LocalDateTime ISO, en UTC. */
+    private static long epochMillis(String iso) {
+        if (iso == null) return 0L;
+        try {
+            return LocalDateTime.parse(iso).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (RuntimeException e) {
+            return 0L;
+        }
+    }
+
+    private static boolean isUnsupportedMediaType(Throwable e) {
+        return e instanceof WebClientResponseException w
+                && w.getStatusCode().value() == HttpStatus.UNSUPPORTED_MEDIA_TYPE.value();
+    }
+}
@@ -1,9 +1,13 @@
 package org.solar.mainservice.ai.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
 import lombok.RequiredArgsConstructor;
+import org.solar.mainservice.ai.codec.AiRequestCodec;
+import org.solar.mainservice.ai.mapper.AiResponseAdapter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,6 +17,7 @@ import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
 
 import java.time.Duration;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
@@ -48,7 +53,27 @@ public class AiWebClientConfig {
                 .defaultHeaders(h -> {
                     h.set("Accept", "application/json");
                     h.set("Connection", "keep-alive"); // o "close" si persiste el problema
+                    h.set(AiResponseAdapter.SCHEMA_HEADER, AiResponseAdapter.CURRENT_VERSION); // contrato que entendemos
                 })
                 .build();
     }
+
+    /**
+     * Formato de los cuerpos hacia la IA, elegido por Content-Type:
+     * json | cbor (application/cbor) y layout rows | columnar (application/vnd.solar.columnar+json|+cbor).
+     * Ante 415 el codec vuelve a application/json.
+     */
+    @Bean
+    public AiRequestCodec aiRequestCodec(
+            ObjectMapper objectMapper,
+            @Value("${ai.encoding.format:json}") String format,
+            @Value("${ai.encoding.layout:rows}") String layout,
+            @Value("${ai.encoding.retry-unsupported-ms:300000}") long retryUnsupportedMs,
+            @Value("${ai.encoding.compare-every:100}") int compareEvery
+    ) {
+        AiRequestCodec.Format fmt = AiRequestCodec.Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        AiRequestCodec.Layout lay = AiRequestCodec.Layout.valueOf(layout.trim().toUpperCase(Locale.ROOT));
+        ObjectMapper cbor = fmt == AiRequestCodec.Format.CBOR ? new CBORMapper() : null;
+        return new AiRequestCodec(objectMapper, cbor, fmt, lay, retryUnsupportedMs, compareEvery);
+    }
 }
@@ -0,0 +1,27 @@
+package org.solar.mainservice.ai.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** Cuerpo de POST /predict/batch: varias ventanas (de distintas sesiones) en una sola llamada. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiBatchPredictRequest {
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Item {
+        private String id;               // se devuelve tal cual en el resultado
+        private List<AiPointDTO> points;
+        private AiWindowFeaturesDTO features;
+        private AiColumnarWindowDTO columns;
+    }
+}
@@ -0,0 +1,17 @@
+package org.solar.mainservice.ai.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class AiBatchPredictResponse {
+    private List<Result> results; // mismo orden que items; se enruta por id si viene
+
+    @Data
+    public static class Result {
+        private String id;
+        private AiPredictResponse prediction;
+        private String error;
+    }
+}
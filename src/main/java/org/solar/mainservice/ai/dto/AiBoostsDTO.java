@@ -0,0 +1,21 @@
+package org.solar.mainservice.ai.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Refuerzos sugeridos por la IA sobre lo proyectado por SafetyGuard. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiBoostsDTO {
+    @JsonAlias({"c", "contact"})
+    private int contactBoost;     // +s de dwell
+
+    @JsonAlias({"p", "passes"})
+    private int passesBoost;      // +pasadas
+
+    @JsonAlias({"v", "speed_down"})
+    private double speedDown;     // m/s a restar de la velocidad base
+}
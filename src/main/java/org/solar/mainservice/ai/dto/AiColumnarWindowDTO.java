@@ -0,0 +1,43 @@
+package org.solar.mainservice.ai.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ventana en columnas (layout columnar): un arreglo primitivo por campo en lugar de N objetos.
+ * Mismo orden que {@code points} (DESC, índice 0 = más reciente); ts en epoch millis UTC (0 = sin timestamp).
+ * Los campos opcionales van como Double[] para conservar los null.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AiColumnarWindowDTO {
+    private String sessionId;
+    private String panelId;
+
+    private long[] ts;
+    private double[] dustIndex;
+    private double[] powerOutput;
+    private double[] temperature;
+    private double[] humidity;
+
+    private Double[] vibration;
+    private Double[] microFractureRisk;
+    private Double[] lat;
+    private Double[] lng;
+
+    private Params params;
+
+    @Data
+    @NoArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Params {
+        private Double[] robotSpeed;
+        private Double[] brushRpm;
+        private Double[] waterPressure;
+        private Double[] detergentFlowRate;
+        private Double[] passOverlap;
+        private Double[] dwellTime;
+    }
+}
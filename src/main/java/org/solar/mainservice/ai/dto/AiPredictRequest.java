@@ -1,9 +1,13 @@
 package org.solar.mainservice.ai.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import java.util.List;
 
 @Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class AiPredictRequest {
     private List<AiPointDTO> points;
-}
\ No newline at end of file
+    private AiWindowFeaturesDTO features; // solo en ai.request.mode = features | hybrid
+    private AiColumnarWindowDTO columns;  // reemplaza a points con ai.encoding.layout = columnar
+}
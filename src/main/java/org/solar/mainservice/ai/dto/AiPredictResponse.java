@@ -1,12 +1,25 @@
 package org.solar.mainservice.ai.dto;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.With;
 import java.util.List;
 import java.util.Map;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class AiPredictResponse {
+    /** Versión del contrato ("2" = window/boosts tipados). Si no viene, se toma del header o se asume legacy. */
+    @JsonAlias({"schema_version", "version"})
+    private String schemaVersion;
+
+    // @With: un hit de caché se re-etiqueta con la sesión y la lectura de quien lo pidió
+    @With
     private String sessionId;
+    @With
     private String timestamp;
 
     private double predictedEfficiencyLoss;
@@ -16,4 +29,18 @@ public class AiPredictResponse {
     private List<String> alerts;
     private Map<String, Object> proposedCommands; // acciones 0..1 + route softmax
     private String explain;
-}
\ No newline at end of file
+
+    @JsonAlias({"windowStats", "stats", "metrics"})
+    private AiWindowStatsDTO window;
+    private AiBoostsDTO boosts;
+
+    // Legacy: before/after sueltos en la raíz; el adaptador los pasa a 'window'
+    @JsonAlias({"windowBeforeDustPct"})
+    private Double beforeDustPct;
+    @JsonAlias({"windowAfterDustPct"})
+    private Double afterDustPct;
+
+    /** Quién produjo la predicción: ai | cache | local. Lo completa este servicio. */
+    @With
+    private String source;
+}
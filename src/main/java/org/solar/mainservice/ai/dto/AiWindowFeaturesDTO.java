@@ -0,0 +1,46 @@
+package org.solar.mainservice.ai.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resumen compacto de la ventana (modo features/hybrid de /predict).
+ * Se mantiene de forma incremental por sesión; la IA no necesita recalcularlo desde los puntos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AiWindowFeaturesDTO {
+    private int count;
+    private SeriesFeatures dustIndex;
+    private SeriesFeatures powerOutput;
+    private GridFeatures grid;   // null si la sesión no reporta grid
+
+    /** Estadísticos de una serie sobre la ventana; slope es por lectura, ewma cubre toda la sesión. */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SeriesFeatures {
+        private double last;
+        private double mean;
+        private double variance;
+        private double ewma;
+        private double slope;
+        private double min;
+        private double max;
+    }
+
+    /** Reducción local de polvo (before - after) en las celdas recorridas. */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class GridFeatures {
+        private Double lastBefore;
+        private Double lastAfter;
+        private double lastDelta;
+        private double meanDelta;
+    }
+}
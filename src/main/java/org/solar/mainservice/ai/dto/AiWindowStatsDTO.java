@@ -0,0 +1,18 @@
+package org.solar.mainservice.ai.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Polvo promedio (%) de la ventana antes/después de la pasada. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AiWindowStatsDTO {
+    @JsonAlias({"before_pct", "before", "avgBeforeDustPct"})
+    private Double beforeDustPct;
+
+    @JsonAlias({"after_pct", "after", "avgAfterDustPct"})
+    private Double afterDustPct;
+}
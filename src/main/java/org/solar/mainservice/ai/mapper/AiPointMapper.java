@@ -23,8 +23,7 @@ public class AiPointMapper {
         p.setHumidity(hum  != null ? hum  : nvl(r.getHumidity(),    0.0));
 
         // >>> dustIndex: elegir la mejor señal disponible <<<
-        Double dustIdx = computeDustIndex(r);
-        p.setDustIndex(dustIdx);
+        p.setDustIndex(dustIndex(r));
 
         // Potencia/sensores adicionales
         p.setPowerOutput(nvl(r.getPowerOutput(), 0.0));
@@ -52,7 +51,7 @@ public class AiPointMapper {
     }
 
     /** Selección robusta del 'dustIndex' para la IA (0..1). */
-    private static Double computeDustIndex(TelemetryReading r) {
+    public static double dustIndex(TelemetryReading r) {
         // 1) locales (si hay grid)
         if (r.getGrid() != null) {
             // si hubo acción, after es más representativo del estado actual
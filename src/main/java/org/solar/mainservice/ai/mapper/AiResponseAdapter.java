@@ -0,0 +1,61 @@
+package org.solar.mainservice.ai.mapper;
+
+import org.solar.mainservice.ai.dto.AiBoostsDTO;
+import org.solar.mainservice.ai.dto.AiPredictResponse;
+import org.solar.mainservice.ai.dto.AiWindowStatsDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Normaliza la respuesta de /predict al contrato vigente: window y boosts tipados.
+ * Las respuestas legacy (sin versión) se adaptan una sola vez aquí, no en cada decisión.
+ */
+@Component
+public class AiResponseAdapter {
+
+    public static final String SCHEMA_HEADER = "X-AI-Schema-Version";
+    public static final String CURRENT_VERSION = "2";
+    public static final String LEGACY_VERSION = "1";
+
+    // Legacy: "boosts(c=.., p=.., v-=..)" dentro de explain
+    private static final Pattern BOOSTS_RE =
+            Pattern.compile("boosts\\(c=(?<c>[-+]?\\d+),\\s*p=(?<p>[-+]?\\d+),\\s*v-=(?<v>[\\d.]+)\\)", Pattern.CASE_INSENSITIVE);
+
+    public static final String SOURCE_AI = "ai";
+
+    public AiPredictResponse normalize(AiPredictResponse pr, String headerVersion) {
+        pr.setSource(SOURCE_AI);
+        if (pr.getSchemaVersion() == null) {
+            pr.setSchemaVersion(headerVersion != null && !headerVersion.isBlank() ? headerVersion : LEGACY_VERSION);
+        }
+        if (!CURRENT_VERSION.equals(pr.getSchemaVersion())) {
+            adaptLegacy(pr);
+        }
+        return pr;
+    }
+
+    private void adaptLegacy(AiPredictResponse pr) {
+        if (pr.getWindow() == null && pr.getBeforeDustPct() != null && pr.getAfterDustPct() != null) {
+            pr.setWindow(new AiWindowStatsDTO(pr.getBeforeDustPct(), pr.getAfterDustPct()));
+        }
+        if (pr.getBoosts() == null) {
+            pr.setBoosts(parseBoosts(pr.getExplain()));
+        }
+    }
+
+    private static AiBoostsDTO parseBoosts(String explain) {
+        if (explain == null) return null;
+        Matcher m = BOOSTS_RE.matcher(explain);
+        if (!m.find()) return null;
+        try {
+            return new AiBoostsDTO(
+                    Integer.parseInt(m.group("c")),
+                    Integer.parseInt(m.group("p")),
+                    Double.parseDouble(m.group("v")));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.solar.mainservice.ai.predictor;
+
+import org.solar.mainservice.ai.dto.AiPointDTO;
+import org.solar.mainservice.ai.dto.AiPredictResponse;
+
+import java.util.List;
+
+/**
+ * Predictor embebido (en proceso). Debe responder en microsegundos con el mismo contrato que /predict.
+ * Para cambiar de modelo basta con declarar otro bean que implemente esta interfaz como @Primary.
+ */
+public interface Predictor {
+
+    /** Origen que se reporta en la decisión (p.ej. "local"). */
+    String source();
+
+    /** @param points ventana ya mapeada, DESC (índice 0 es el más reciente) */
+    AiPredictResponse predict(List<AiPointDTO> points);
+}
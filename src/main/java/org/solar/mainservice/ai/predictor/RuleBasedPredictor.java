@@ -0,0 +1,92 @@
+package org.solar.mainservice.ai.predictor;
+
+import org.solar.mainservice.ai.dto.AiPointDTO;
+import org.solar.mainservice.ai.dto.AiPredictResponse;
+import org.solar.mainservice.ai.dto.AiWindowStatsDTO;
+import org.solar.mainservice.ai.mapper.AiResponseAdapter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Predictor por reglas: EWMA del índice de polvo, tendencia entre mitades de la ventana y
+ * caída de potencia. Propone acciones 0..1 proporcionales a la severidad; SafetyGuard las proyecta.
+ */
+@Component
+public class RuleBasedPredictor implements Predictor {
+
+    @Value("${ai.predictor.rules.ewma-alpha:0.3}")
+    private double alpha;
+
+    @Value("${ai.predictor.rules.now-dust:0.35}")
+    private double nowDust;       // índice de polvo (0..1) a partir del cual se limpia ya
+
+    @Value("${ai.predictor.rules.hold-dust:0.15}")
+    private double holdDust;
+
+    @Override
+    public String source() { return "local"; }
+
+    @Override
+    public AiPredictResponse predict(List<AiPointDTO> points) {
+        int n = points.size();
+        AiPredictResponse pr = new AiPredictResponse();
+        pr.setSchemaVersion(AiResponseAdapter.CURRENT_VERSION);
+        pr.setSource(source());
+        if (n == 0) {
+            pr.setRecommendedCleaningFrequency("after_2_windows");
+            return pr;
+        }
+
+        // EWMA de más viejo a más nuevo
+        double ewma = points.get(n - 1).getDustIndex();
+        for (int i = n - 2; i >= 0; i--) {
+            ewma = alpha * points.get(i).getDustIndex() + (1 - alpha) * ewma;
+        }
+
+        // Mitad vieja vs mitad nueva (before/after de la ventana)
+        int half = Math.max(1, n / 2);
+        double newer = 0, older = 0, powerNewer = 0, powerOlder = 0;
+        for (int i = 0; i < half; i++) {
+            newer += points.get(i).getDustIndex();
+            powerNewer += points.get(i).getPowerOutput();
+        }
+        for (int i = half; i < n; i++) {
+            older += points.get(i).getDustIndex();
+            powerOlder += points.get(i).getPowerOutput();
+        }
+        newer /= half;
+        powerNewer /= half;
+        older = n > half ? older / (n - half) : newer;
+        powerOlder = n > half ? powerOlder / (n - half) : powerNewer;
+
+        double powerDrop = powerOlder > 0 ? clamp01((powerOlder - powerNewer) / powerOlder) : 0.0;
+        double trend = Math.max(0.0, newer - older);
+        double severity = clamp01(ewma / nowDust + trend + powerDrop);
+
+        Map<String, Object> proposed = new LinkedHashMap<>();
+        proposed.put("brushRpm", severity);
+        proposed.put("waterFlow", severity);
+        proposed.put("pressure", severity);
+        proposed.put("detergentPct", severity);
+        proposed.put("dwellSec", severity);
+        proposed.put("passes", severity > 0.66 ? 1.0 : severity > 0.33 ? 0.5 : 0.0);
+        proposed.put("route", Map.of("keep", 1.0));
+
+        pr.setSessionId(points.get(0).getSessionId());
+        pr.setTimestamp(points.get(0).getTimestamp());
+        pr.setPredictedEfficiencyLoss(ewma);
+        pr.setRecommendedCleaningFrequency(ewma >= nowDust ? "now" : ewma >= holdDust ? "hold_20s" : "after_2_windows");
+        pr.setCleaningRouteAdjustment("keep");
+        pr.setProposedCommands(proposed);
+        pr.setWindow(new AiWindowStatsDTO(older * 100.0, newer * 100.0));
+        pr.setExplain("local_rules ewma=" + round3(ewma) + " trend=" + round3(trend) + " powerDrop=" + round3(powerDrop));
+        return pr;
+    }
+
+    private static double clamp01(double v) { return Math.max(0.0, Math.min(1.0, v)); }
+    private static double round3(double v) { return Math.round(v * 1000.0) / 1000.0; }
+}
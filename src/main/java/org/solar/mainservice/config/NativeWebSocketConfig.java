@@ -0,0 +1,32 @@
+package org.solar.mainservice.config;
+
+import lombok.RequiredArgsConstructor;
+import org.solar.mainservice.websocket.NativeWsHub;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/** Transporte nativo con backpressure por cliente; convive con STOMP (/ws). */
+@Configuration
+@EnableWebSocket
+@ConditionalOnProperty(name = "ws.native.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class NativeWebSocketConfig implements WebSocketConfigurer {
+
+    private final NativeWsHub hub;
+
+    @Value("${ws.native.path:/ws-native}")
+    private String path;
+
+    @Value("${app.cors.allowed-origins:http://localhost:5173,http://127.0.0.1:5173,http://localhost:3000}")
+    private String allowedOrigins;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(hub, path)
+                .setAllowedOriginPatterns(allowedOrigins.split(","));
+    }
+}
@@ -0,0 +1,62 @@
+package org.solar.mainservice.config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/** Cliente único hacia el simulador/gateway del robot: pool explícito, timeouts y HTTP/2 (h2c) opcional. */
+@Configuration
+public class SimulatorWebClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider simulatorConnectionProvider(
+            @Value("${simulator.http.max-connections:32}") int maxConnections,
+            @Value("${simulator.http.pending-acquire-timeout-ms:2000}") long pendingAcquireTimeoutMs,
+            @Value("${simulator.http.max-idle-ms:30000}") long maxIdleMs,
+            @Value("${simulator.http.max-life-ms:300000}") long maxLifeMs
+    ) {
+        return ConnectionProvider.builder("simulator")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeMs))
+                .evictInBackground(Duration.ofMillis(maxIdleMs))
+                .build();
+    }
+
+    @Bean(name = "simulatorWebClient")
+    public WebClient simulatorWebClient(
+            ConnectionProvider simulatorConnectionProvider,
+            @Value("${simulator.http.connect-timeout-ms:1000}") int connectTimeoutMs,
+            @Value("${simulator.http.response-timeout-ms:2000}") int responseTimeoutMs,
+            @Value("${simulator.http.h2c:false}") boolean h2c
+    ) {
+        HttpClient httpClient = HttpClient.create(simulatorConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .keepAlive(true)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs))
+                .doOnConnected(conn -> conn
+                        .addHandlerLast(new ReadTimeoutHandler(responseTimeoutMs, TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(responseTimeoutMs, TimeUnit.MILLISECONDS)));
+        if (h2c) {
+            // h2c con prior knowledge; el gateway debe hablar HTTP/2 sin TLS (si no, dejar en false)
+            httpClient = httpClient.protocol(HttpProtocol.H2C);
+        }
+
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -31,5 +31,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setTaskScheduler(scheduler);
 
         registry.setApplicationDestinationPrefixes("/app");
+        // el canal de salida es un pool: sin esto dos mensajes a la misma sesión pueden llegar invertidos (seq de /delta)
+        registry.setPreservePublishOrder(true);
     }
 }
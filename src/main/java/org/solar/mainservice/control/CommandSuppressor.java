@@ -0,0 +1,82 @@
+package org.solar.mainservice.control;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evita reenviar al simulador params que el robot ya tiene: si lo proyectado coincide (dentro del
+ * epsilon de cada param) con lo último enviado y confirmado, el comando se suprime.
+ * Cada refresh-ms se reenvía igual, por si el robot perdió el estado.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CommandSuppressor {
+
+    private final Environment env;
+
+    @Value("${control.suppress.enabled:true}")
+    private boolean enabled;
+
+    @Value("${control.suppress.refresh-ms:10000}")
+    private long refreshMs;
+
+    @Value("${control.suppress.default-epsilon:1e-6}")
+    private double defaultEpsilon;
+
+    private final double[] epsilons = new double[Param.VALUES.length]; // por Param.ordinal()
+
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong forcedRefresh = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        Map<String, Double> configured = Binder.get(env)
+                .bind("control.suppress.epsilon", Bindable.mapOf(String.class, Double.class))
+                .orElse(Map.of());
+        Arrays.fill(epsilons, defaultEpsilon);
+        configured.forEach((name, eps) -> {
+            Param p = Param.of(name);
+            if (p != null) epsilons[p.ordinal()] = eps;
+            else log.warn("[CTRL] unknown param in control.suppress.epsilon: {}", name);
+        });
+        log.info("[CTRL] command suppression enabled={} refreshMs={} epsilons={}", enabled, refreshMs, configured);
+    }
+
+    /** true si {@code next} no cambia nada respecto a lo último confirmado para este robot. */
+    public boolean isRedundant(ControllerStateStore.ControllerState state, ParamVector next) {
+        if (!enabled) return false;
+        checked.incrementAndGet();
+        if (state == null || state.lastSentParams() == null) return false;
+        if (!next.sameWithin(state.lastSentParams(), epsilons)) return false;
+
+        if (System.currentTimeMillis() - state.lastSentAtMs() >= refreshMs) {
+            forcedRefresh.incrementAndGet();
+            return false;
+        }
+        suppressed.incrementAndGet();
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("refreshMs", refreshMs);
+        m.put("checked", checked.get());
+        m.put("suppressed", suppressed.get());
+        m.put("forcedRefresh", forcedRefresh.get());
+        return m;
+    }
+}
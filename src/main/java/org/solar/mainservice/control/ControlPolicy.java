@@ -0,0 +1,56 @@
+package org.solar.mainservice.control;
+
+import org.solar.mainservice.safety.SafetyGuard;
+
+/**
+ * Política de control inmutable y ya tipada; se construye una vez por recarga y se comparte
+ * entre todas las decisiones.
+ */
+public record ControlPolicy(
+        SafetyGuard.Limits limits,
+        double targetDustPct,
+        double minDeltaPct,
+        double finalDustPct,
+        double speedMs,
+        double passOverlapFrac,
+        double bumpNowRpm,
+        double bumpNowPress,
+        double bumpNowFlow
+) {
+
+    static ControlPolicy from(ControlProperties p) {
+        var l = p.getLimits();
+        validateRange("rpm", l.getRpmMin(), l.getRpmMax());
+        validateRange("flow", l.getFlowMin(), l.getFlowMax());
+        validateRange("press", l.getPressMin(), l.getPressMax());
+        validateRange("detPct", l.getDetPctMin(), l.getDetPctMax());
+        validateRange("dwell", l.getDwellMin(), l.getDwellMax());
+        validateRange("passes", l.getPassesMin(), l.getPassesMax());
+        if (l.getMaxDeltaRpm() < 0) throw new IllegalArgumentException("maxDeltaRpm must be >= 0");
+
+        SafetyGuard.Limits limits = SafetyGuard.Limits.builder()
+                .rpmMin(l.getRpmMin()).rpmMax(l.getRpmMax())
+                .flowMin(l.getFlowMin()).flowMax(l.getFlowMax())
+                .pressMin(l.getPressMin()).pressMax(l.getPressMax())
+                .detPctMin(l.getDetPctMin()).detPctMax(l.getDetPctMax())
+                .dwellMin(l.getDwellMin()).dwellMax(l.getDwellMax())
+                .passesMin(l.getPassesMin()).passesMax(l.getPassesMax())
+                .maxDeltaRpm(l.getMaxDeltaRpm())
+                .build();
+
+        return new ControlPolicy(
+                limits,
+                p.getTarget().getDustPct(),
+                p.getTarget().getMinDeltaPct(),
+                p.getTarget().getFinalDustPct(),
+                p.getDefaults().getSpeedMs(),
+                p.getDefaults().getPassOverlapFrac(),
+                p.getBump().getNow().getRpm(),
+                p.getBump().getNow().getPress(),
+                p.getBump().getNow().getFlow());
+    }
+
+    private static void validateRange(String name, double min, double max) {
+        if (min > max) throw new IllegalArgumentException(name + "Min must be <= " + name + "Max");
+    }
+}
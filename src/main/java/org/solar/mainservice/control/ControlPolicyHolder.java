@@ -0,0 +1,129 @@
+package org.solar.mainservice.control;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySource;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mantiene la {@link ControlPolicy} vigente (global + por panel). Se reemplaza de forma atómica
+ * en cada recarga; las decisiones solo leen la referencia.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ControlPolicyHolder {
+
+    private final Environment env;
+
+    /** Archivo YAML opcional con control.* que se relee en cada recarga (tiene prioridad sobre application.yml). */
+    @Value("${control.policy-file:}")
+    private String policyFile;
+
+    public record Snapshot(ControlPolicy global, Map<String, ControlPolicy> panels, Instant loadedAt, String source) {}
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+
+    @PostConstruct
+    void init() { reload(); }
+
+    public ControlPolicy forPanel(String panelId) {
+        Snapshot s = current.get();
+        if (panelId != null) {
+            ControlPolicy p = s.panels().get(panelId);
+            if (p != null) return p;
+        }
+        return s.global();
+    }
+
+    public Snapshot snapshot() { return current.get(); }
+
+    /** Vuelve a leer control.* desde el Environment (y el archivo de política si está configurado). */
+    public Snapshot reload() {
+        return swap(bind(new Binder(propertySources()),
+                policyFile == null || policyFile.isBlank() ? "environment" : "environment+" + policyFile));
+    }
+
+    /**
+     * Reemplaza la política en caliente desde el cuerpo de PUT (misma forma que control.*). Se bindea igual
+     * que en {@link #reload}: cada entrada de panels se mezcla sobre la global enviada.
+     */
+    public Snapshot apply(Map<String, Object> body) {
+        Map<String, Object> flat = new LinkedHashMap<>();
+        flatten("control", body, flat);
+        List<ConfigurationPropertySource> sources = new ArrayList<>();
+        ConfigurationPropertySources.from(new MapPropertySource("control-policy-api", flat)).forEach(sources::add);
+        return swap(bind(new Binder(sources), "api"));
+    }
+
+    /** Un valor inválido (de la API o del archivo de política) sale como IllegalArgumentException → 422. */
+    private Snapshot bind(Binder binder, String source) {
+        try {
+            return build(binder, source);
+        } catch (BindException e) {
+            throw new IllegalArgumentException(e.getMessage() + (e.getCause() != null ? ": " + e.getCause().getMessage() : ""), e);
+        }
+    }
+
+    private Snapshot build(Binder binder, String source) {
+        ControlProperties base = binder.bind("control", ControlProperties.class).orElseGet(ControlProperties::new);
+
+        Map<String, ControlPolicy> panels = new LinkedHashMap<>();
+        for (String panelId : base.getPanels().keySet()) {
+            // base + override del panel: se re-bindea control.* y luego control.panels.<id>.* encima
+            ControlProperties merged = binder.bind("control", ControlProperties.class).orElseGet(ControlProperties::new);
+            binder.bind("control.panels." + panelId, Bindable.ofInstance(merged));
+            panels.put(panelId, ControlPolicy.from(merged));
+        }
+        return new Snapshot(ControlPolicy.from(base), Map.copyOf(panels), Instant.now(), source);
+    }
+
+    /** {limits: {rpmMax: 1100}} → control.limits.rpmMax=1100 (como lo vería el Binder desde un .properties). */
+    private static void flatten(String prefix, Map<?, ?> in, Map<String, Object> out) {
+        in.forEach((k, v) -> {
+            String key = prefix + "." + k;
+            if (v instanceof Map<?, ?> m) flatten(key, m, out);
+            else if (v != null) out.put(key, v);
+        });
+    }
+
+    private Snapshot swap(Snapshot next) {
+        current.set(next);
+        log.info("[POLICY] loaded source={} panels={} limits={}", next.source(), next.panels().keySet(), next.global().limits());
+        return next;
+    }
+
+    private List<ConfigurationPropertySource> propertySources() {
+        List<ConfigurationPropertySource> sources = new ArrayList<>();
+        if (policyFile != null && !policyFile.isBlank()) {
+            try {
+                List<PropertySource<?>> loaded = new YamlPropertySourceLoader()
+                        .load("control-policy-file", new FileSystemResource(policyFile));
+                ConfigurationPropertySources.from(loaded).forEach(sources::add);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("cannot read control.policy-file " + policyFile + ": " + e.getMessage(), e);
+            }
+        }
+        ConfigurationPropertySources.get(env).forEach(sources::add);
+        return sources;
+    }
+}
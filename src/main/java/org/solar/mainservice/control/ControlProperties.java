@@ -0,0 +1,65 @@
+package org.solar.mainservice.control;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Forma de {@code control.*} tal como viene de la configuración. Los defaults son los que
+ * históricamente usaba el orquestador. No se usa en el camino caliente: se compila a {@link ControlPolicy}.
+ */
+@Getter @Setter
+public class ControlProperties {
+
+    private Limits limits = new Limits();
+    private Target target = new Target();
+    private Defaults defaults = new Defaults();
+    private Bump bump = new Bump();
+
+    /** Overrides por panel: control.panels.&lt;panelId&gt;.limits.rpmMax, etc. */
+    private Map<String, ControlProperties> panels = new LinkedHashMap<>();
+
+    @Getter @Setter
+    public static class Limits {
+        private double rpmMin = 500.0;
+        private double rpmMax = 1200.0;
+        private double flowMin = 0.10;     // L/min
+        private double flowMax = 0.60;
+        private double pressMin = 1.2;     // bar
+        private double pressMax = 2.5;
+        private double detPctMin = 0.02;   // fracción 0..1
+        private double detPctMax = 0.06;
+        private double dwellMin = 2.0;     // s
+        private double dwellMax = 8.0;     // s
+        private int passesMin = 1;
+        private int passesMax = 3;
+        private double maxDeltaRpm = 150.0;
+    }
+
+    @Getter @Setter
+    public static class Target {
+        private double dustPct = 10.0;
+        private double minDeltaPct = 5.0;
+        private double finalDustPct = 2.0; // drive-to-zero band
+    }
+
+    @Getter @Setter
+    public static class Defaults {
+        private double speedMs = 0.35;
+        private double passOverlapFrac = 0.30;
+    }
+
+    @Getter @Setter
+    public static class Bump {
+        private Now now = new Now();
+
+        @Getter @Setter
+        public static class Now {
+            private double rpm = 800.0;
+            private double press = 1.8;
+            private double flow = 0.35;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.solar.mainservice.control;
+
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.safety.SafetyGuard;
+import org.solar.mainservice.service.SessionLifecycleListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado del controlador por (sesión, panel): últimos comandos aplicados y últimos params enviados.
+ * Lecturas sin bloqueo; cada actualización reemplaza el estado completo (inmutable).
+ */
+@Slf4j
+@Component
+public class ControllerStateStore implements SessionLifecycleListener {
+
+    @Value("${control.state.idle-ttl-ms:600000}")
+    private long idleTtlMs;
+
+    @Value("${control.state.max-entries:10000}")
+    private int maxEntries;
+
+    public record Key(String sessionId, String panelId) {}
+
+    public record ControllerState(SafetyGuard.Commands prevCommands,
+                                  ParamVector lastSentParams,
+                                  long updatedAtMs,
+                                  long lastSentAtMs) {}
+
+    private final Map<Key, ControllerState> states = new ConcurrentHashMap<>();
+
+    private final AtomicLong evictedIdle = new AtomicLong();
+    private final AtomicLong evictedOverflow = new AtomicLong();
+
+    /** null si no hay estado previo para ese robot. */
+    public ControllerState get(String sessionId, String panelId) {
+        return states.get(new Key(sessionId, panelId));
+    }
+
+    public void recordApplied(String sessionId, String panelId, SafetyGuard.Commands applied) {
+        long now = System.currentTimeMillis();
+        states.compute(new Key(sessionId, panelId), (k, cur) -> new ControllerState(
+                applied,
+                cur != null ? cur.lastSentParams() : null,
+                now,
+                cur != null ? cur.lastSentAtMs() : 0L));
+        enforceBound();
+    }
+
+    public void recordSent(String sessionId, String panelId, ParamVector params) {
+        long now = System.currentTimeMillis();
+        ParamVector sent = params.copy();
+        states.compute(new Key(sessionId, panelId), (k, cur) -> new ControllerState(
+                cur != null ? cur.prevCommands() : null,
+                sent,
+                now,
+                now));
+        enforceBound();
+    }
+
+    @Override
+    public void onSessionStopped(String sessionId) {
+        states.keySet().removeIf(k -> Objects.equals(k.sessionId(), sessionId));
+    }
+
+    @Scheduled(fixedDelayString = "${control.state.sweep-interval-ms:60000}")
+    void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTtlMs;
+        states.entrySet().removeIf(e -> {
+            boolean idle = e.getValue().updatedAtMs() < cutoff;
+            if (idle) evictedIdle.incrementAndGet();
+            return idle;
+        });
+    }
+
+    /** Si se supera el tope, se descarta el robot con actualización más antigua. */
+    private void enforceBound() {
+        while (states.size() > maxEntries) {
+            Key oldest = null;
+            long oldestTs = Long.MAX_VALUE;
+            for (Map.Entry<Key, ControllerState> e : states.entrySet()) {
+                if (e.getValue().updatedAtMs() < oldestTs) {
+                    oldestTs = e.getValue().updatedAtMs();
+                    oldest = e.getKey();
+                }
+            }
+            if (oldest == null || states.remove(oldest) == null) return;
+            evictedOverflow.incrementAndGet();
+            log.warn("[STATE] max-entries={} reached, evicted {}", maxEntries, oldest);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("entries", states.size());
+        m.put("maxEntries", maxEntries);
+        m.put("evictedIdle", evictedIdle.get());
+        m.put("evictedOverflow", evictedOverflow.get());
+        return m;
+    }
+}
@@ -0,0 +1,70 @@
+package org.solar.mainservice.control;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parámetros de control con índice fijo (posición en {@link ParamVector}).
+ * {@code simulator} = el simulador/gateway lo acepta; los demás solo se usan internamente (p. ej. anti-redundancia).
+ */
+public enum Param {
+    ROBOT_SPEED("robotSpeed", true),
+    BRUSH_RPM("brushRpm", true),
+    WATER_PRESSURE("waterPressure", true),
+    DETERGENT_FLOW_RATE("detergentFlowRate", true),
+    VACUUM_POWER("vacuumPower", true),
+    TURN_RADIUS("turnRadius", true),
+    PASS_OVERLAP("passOverlap", true),
+    PATH_SPACING("pathSpacing", true),
+    SQUEEGEE_PRESSURE("squeegeePressure", true),
+    DWELL_TIME("dwellTime", true),
+    RPM_RAMP_RATE("rpmRampRate", true),
+    MAX_WATER_PER_MIN("maxWaterPerMin", true),
+    MAX_ENERGY_PER_MIN("maxEnergyPerMin", true),
+    WATER_FLOW("waterFlow", false),
+    PASSES("passes", false);
+
+    static final Param[] VALUES = values();
+
+    /** Tabla de alias precalculada: camelCase, snake_case y minúsculas → param. */
+    private static final Map<String, Param> ALIASES = new HashMap<>();
+
+    static {
+        for (Param p : VALUES) {
+            ALIASES.put(p.key, p);
+            ALIASES.put(p.key.toLowerCase(Locale.ROOT), p);
+            ALIASES.put(snake(p.key), p);
+        }
+        ALIASES.put("brushRPM", BRUSH_RPM);
+    }
+
+    private final String key;
+    private final boolean simulator;
+
+    Param(String key, boolean simulator) {
+        this.key = key;
+        this.simulator = simulator;
+    }
+
+    /** Nombre en el JSON del simulador. */
+    public String key() { return key; }
+
+    public boolean simulator() { return simulator; }
+
+    /** null si el nombre no corresponde a ningún parámetro conocido. */
+    public static Param of(String raw) {
+        if (raw == null) return null;
+        Param p = ALIASES.get(raw);
+        return p != null ? p : ALIASES.get(raw.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private static String snake(String camel) {
+        StringBuilder sb = new StringBuilder(camel.length() + 4);
+        for (char c : camel.toCharArray()) {
+            if (Character.isUpperCase(c)) sb.append('_').append(Character.toLowerCase(c));
+            else sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package org.solar.mainservice.control;
+
+import org.solar.mainservice.model.TelemetryReading;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Vector primitivo de parámetros indexado por {@link Param}: un double[] y una máscara de presentes.
+ * Recorre el camino de control (orquestador → anti-redundancia → relay) sin mapas ni boxing;
+ * solo se convierte a Map en el borde JSON ({@link #toSimulatorMap()}).
+ */
+public final class ParamVector {
+
+    private final double[] values = new double[Param.VALUES.length];
+    private int present; // bit i = Param.VALUES[i] tiene valor
+
+    public ParamVector set(Param p, double v) {
+        values[p.ordinal()] = v;
+        present |= 1 << p.ordinal();
+        return this;
+    }
+
+    public boolean has(Param p) { return (present & (1 << p.ordinal())) != 0; }
+
+    public double get(Param p) { return values[p.ordinal()]; }
+
+    public boolean isEmpty() { return present == 0; }
+
+    /** Sube el valor a {@code floor} si está presente y por debajo. */
+    public void raiseTo(Param p, double floor) {
+        if (has(p) && values[p.ordinal()] < floor) values[p.ordinal()] = floor;
+    }
+
+    /** Copia los presentes de {@code other} encima de este (gana {@code other}). */
+    public ParamVector merge(ParamVector other) {
+        for (Param p : Param.VALUES) {
+            if (other.has(p)) set(p, other.get(p));
+        }
+        return this;
+    }
+
+    public ParamVector copy() {
+        ParamVector c = new ParamVector();
+        System.arraycopy(values, 0, c.values, 0, values.length);
+        c.present = present;
+        return c;
+    }
+
+    /** Mismos params presentes y cada diferencia dentro de {@code epsilons[ordinal]}. */
+    public boolean sameWithin(ParamVector other, double[] epsilons) {
+        if (other == null || present != other.present) return false;
+        for (int i = 0; i < values.length; i++) {
+            if ((present & (1 << i)) != 0 && Math.abs(values[i] - other.values[i]) > epsilons[i]) return false;
+        }
+        return true;
+    }
+
+    /** Solo los params que acepta el simulador, con su nombre JSON. */
+    public Map<String, Object> toSimulatorMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (Param p : Param.VALUES) {
+            if (p.simulator() && has(p)) m.put(p.key(), values[p.ordinal()]);
+        }
+        return m;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (Param p : Param.VALUES) {
+            if (has(p)) m.put(p.key(), values[p.ordinal()]);
+        }
+        return m;
+    }
+
+    /** Desde un mapa externo (aliases/snake_case, números o strings numéricos); lo desconocido se ignora. */
+    public static ParamVector fromMap(Map<?, ?> src) {
+        ParamVector v = new ParamVector();
+        if (src == null) return v;
+        src.forEach((k, val) -> {
+            Param p = Param.of(String.valueOf(k));
+            if (p == null) return;
+            if (val instanceof Number n) {
+                v.set(p, n.doubleValue());
+            } else if (val instanceof String s) {
+                try { v.set(p, Double.parseDouble(s.trim())); } catch (NumberFormatException ignored) {}
+            }
+        });
+        return v;
+    }
+
+    /** Params vigentes del robot según la lectura (los null quedan ausentes). */
+    public static ParamVector fromReading(TelemetryReading.Params prm) {
+        ParamVector v = new ParamVector();
+        if (prm == null) return v;
+        setIfPresent(v, Param.BRUSH_RPM, prm.getBrushRpm());
+        setIfPresent(v, Param.WATER_PRESSURE, prm.getWaterPressure());
+        setIfPresent(v, Param.WATER_FLOW, prm.getMaxWaterPerMin());
+        setIfPresent(v, Param.DETERGENT_FLOW_RATE, prm.getDetergentFlowRate());
+        setIfPresent(v, Param.ROBOT_SPEED, prm.getRobotSpeed());
+        setIfPresent(v, Param.PASS_OVERLAP, prm.getPassOverlap());
+        setIfPresent(v, Param.DWELL_TIME, prm.getDwellTime());
+        return v;
+    }
+
+    private static void setIfPresent(ParamVector v, Param p, Double value) {
+        if (value != null) v.set(p, value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ParamVector other && present == other.present && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() { return 31 * present + Arrays.hashCode(values); }
+
+    @Override
+    public String toString() { return toMap().toString(); }
+}
@@ -0,0 +1,44 @@
+package org.solar.mainservice.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.control.ControlPolicyHolder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/control/policy")
+@RequiredArgsConstructor
+public class ControlPolicyController {
+
+    private final ControlPolicyHolder policies;
+
+    @GetMapping
+    public ControlPolicyHolder.Snapshot current() { return policies.snapshot(); }
+
+    /** Relee control.* (application.yml + control.policy-file) sin reiniciar. */
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload() {
+        try {
+            return ResponseEntity.ok(policies.reload());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("ok", false, "error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Reemplaza la política completa (misma forma que control.*); lo que no venga toma el default de código
+     * y cada entrada de panels se mezcla sobre la global enviada, igual que en /reload.
+     */
+    @PutMapping
+    public ResponseEntity<?> replace(@RequestBody Map<String, Object> body) {
+        try {
+            return ResponseEntity.ok(policies.apply(body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.unprocessableEntity().body(Map.of("ok", false, "error", e.getMessage()));
+        }
+    }
+}
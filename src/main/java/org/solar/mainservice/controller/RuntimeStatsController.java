@@ -0,0 +1,86 @@
+package org.solar.mainservice.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.solar.mainservice.ai.cache.PredictionCache;
+import org.solar.mainservice.ai.client.AiBatchAggregator;
+import org.solar.mainservice.ai.client.AiServiceClient;
+import org.solar.mainservice.ai.codec.AiRequestCodec;
+import org.solar.mainservice.control.CommandSuppressor;
+import org.solar.mainservice.control.ControllerStateStore;
+import org.solar.mainservice.service.ParamChangeCoalescer;
+import org.solar.mainservice.telemetry.PredictionGate;
+import org.solar.mainservice.telemetry.PredictionTriggerPolicy;
+import org.solar.mainservice.telemetry.TelemetryWindowProcessor;
+import org.solar.mainservice.telemetry.TelemetryWriteBehindBuffer;
+import org.solar.mainservice.websocket.NativeWsHub;
+import org.solar.mainservice.websocket.TelemetryDeltaEncoder;
+import org.solar.mainservice.websocket.WebSocketNotifier;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/** Contadores internos del pipeline (diagnóstico en caliente). */
+@RestController
+@RequestMapping("/api/runtime")
+@RequiredArgsConstructor
+public class RuntimeStatsController {
+
+    private final TelemetryWriteBehindBuffer writeBehind;
+    private final PredictionGate predictionGate;
+    private final PredictionTriggerPolicy triggerPolicy;
+    private final ControllerStateStore controllerState;
+    private final CommandSuppressor commandSuppressor;
+    private final AiBatchAggregator aiBatch;
+    private final PredictionCache predictionCache;
+    private final AiServiceClient aiClient;
+    private final AiRequestCodec aiCodec;
+    private final TelemetryWindowProcessor windowProcessor;
+    private final WebSocketNotifier wsNotifier;
+    private final TelemetryDeltaEncoder wsDeltas;
+    private final NativeWsHub wsNative;
+    private final ParamChangeCoalescer simulatorCoalescer;
+
+    @GetMapping("/write-behind")
+    public Map<String, Object> writeBehind() { return writeBehind.stats(); }
+
+    @GetMapping("/predictions")
+    public Map<String, Object> predictions() { return predictionGate.stats(); }
+
+    @GetMapping("/trigger")
+    public Map<String, Object> trigger() { return triggerPolicy.stats(); }
+
+    @GetMapping("/control-state")
+    public Map<String, Object> controlState() { return controllerState.stats(); }
+
+    @GetMapping("/control-suppression")
+    public Map<String, Object> controlSuppression() { return commandSuppressor.stats(); }
+
+    @GetMapping("/ai-batch")
+    public Map<String, Object> aiBatch() { return aiBatch.stats(); }
+
+    @GetMapping("/ai-cache")
+    public Map<String, Object> aiCache() { return predictionCache.stats(); }
+
+    @GetMapping("/ai-client")
+    public Map<String, Object> aiClient() { return aiClient.stats(); }
+
+    @GetMapping("/ai-encoding")
+    public Map<String, Object> aiEncoding() { return aiCodec.stats(); }
+
+    @GetMapping("/predictor")
+    public Map<String, Object> predictor() { return windowProcessor.stats(); }
+
+    @GetMapping("/ws")
+    public Map<String, Object> ws() { return wsNotifier.stats(); }
+
+    @GetMapping("/ws-delta")
+    public Map<String, Object> wsDelta() { return wsDeltas.stats(); }
+
+    @GetMapping("/ws-native")
+    public Map<String, Object> wsNative() { return wsNative.stats(); }
+
+    @GetMapping("/simulator")
+    public Map<String, Object> simulator() { return simulatorCoalescer.stats(); }
+}
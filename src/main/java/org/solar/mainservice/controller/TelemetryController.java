@@ -1,13 +1,31 @@
 package org.solar.mainservice.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.dto.TelemetryBatchResponse;
+import org.solar.mainservice.dto.TelemetryStreamAck;
 import org.solar.mainservice.model.TelemetryReading;
 import org.solar.mainservice.service.TelemetryService;
+import org.solar.mainservice.telemetry.TelemetryWriteBehindBuffer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -15,14 +33,78 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class TelemetryController {
     private final TelemetryService telemetryService;
+    private final TelemetryWriteBehindBuffer writeBehind;
+    private final ObjectMapper objectMapper;
+
+    @Value("${telemetry.batch.max-size:5000}")
+    private int batchMaxSize;
 
     @PostMapping("/telemetry")
-    @ResponseStatus(HttpStatus.ACCEPTED) // 202
-    public Mono<Void> receive(@RequestBody TelemetryReading reading) {
+    public Mono<ResponseEntity<Void>> receive(@RequestBody TelemetryReading reading) {
         return telemetryService.processReading(reading)
+                .then(Mono.just(ResponseEntity.status(HttpStatus.ACCEPTED).<Void>build())) // 202
+                .onErrorResume(TelemetryWriteBehindBuffer.BufferFullException.class, e -> {
+                    // sobrecarga: que el cliente reintente en vez de perder la lectura
+                    log.warn("[WB] buffer full, rejecting reading session={}", reading.getSessionId());
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, String.valueOf(writeBehind.retryAfterSeconds()))
+                            .build());
+                })
                 .onErrorResume(e -> {
                     log.error("Error saving telemetry", e);
-                    return Mono.empty();
+                    return Mono.just(ResponseEntity.status(HttpStatus.ACCEPTED).<Void>build());
                 });
     }
-}
\ No newline at end of file
+
+    @PostMapping("/telemetry/batch")
+    public Mono<ResponseEntity<TelemetryBatchResponse>> receiveBatch(@RequestBody List<TelemetryReading> readings) {
+        if (readings.size() > batchMaxSize) {
+            return Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build());
+        }
+        return telemetryService.processBatch(readings)
+                .map(res -> ResponseEntity.status(HttpStatus.ACCEPTED).body(res));
+    }
+
+    /**
+     * Stream NDJSON de larga duración: una lectura por línea, acks de progreso por línea en la respuesta.
+     * El cuerpo se lee bajo demanda (fuera de los hilos del servidor) para que el productor se frene
+     * cuando el pipeline va lento.
+     */
+    @PostMapping(value = "/telemetry/stream",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TelemetryStreamAck> receiveStream(InputStream body) {
+        return telemetryService.processStream(ndjson(body));
+    }
+
+    private Flux<TelemetryService.StreamLine> ndjson(InputStream body) {
+        ObjectReader reader = objectMapper.readerFor(TelemetryReading.class);
+        return Flux.<TelemetryService.StreamLine, BufferedReader>generate(
+                        () -> new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)),
+                        (in, sink) -> {
+                            try {
+                                String line;
+                                while ((line = in.readLine()) != null) {
+                                    if (line.isBlank()) continue;
+                                    try {
+                                        sink.next(TelemetryService.StreamLine.of(reader.readValue(line)));
+                                        return in;
+                                    } catch (JsonProcessingException e) {
+                                        // llega al pipeline para que cuente como recibida y rechazada
+                                        log.warn("[STREAM] malformed line rejected: {}", e.getOriginalMessage());
+                                        sink.next(TelemetryService.StreamLine.malformed(e.getOriginalMessage()));
+                                        return in;
+                                    }
+                                }
+                                sink.complete();
+                            } catch (IOException e) {
+                                sink.error(e);
+                            }
+                            return in;
+                        },
+                        in -> {
+                            try { in.close(); } catch (IOException ignored) { }
+                        })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,42 @@
+package org.solar.mainservice.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.websocket.TelemetryDeltaEncoder;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.Map;
+
+/**
+ * Snapshots de los tópicos delta: al suscribirse alguien y cuando un cliente detecta un salto de seq.
+ * Resync: SEND /app/telemetry/resync con {"destination": "..."} o {"sessionId": "..."} / {"panelId": "..."}.
+ */
+@Slf4j
+@Controller
+@RequiredArgsConstructor
+public class TelemetryDeltaController {
+
+    private final TelemetryDeltaEncoder deltas;
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        if (!deltas.isEnabled()) return;
+        String key = TelemetryDeltaEncoder.keyForDestination(SimpMessageHeaderAccessor.wrap(event.getMessage()).getDestination());
+        if (key != null) deltas.requestSnapshot(key);
+    }
+
+    @MessageMapping("/telemetry/resync")
+    public void resync(Map<String, String> req) {
+        if (!deltas.isEnabled() || req == null) return;
+        String key = TelemetryDeltaEncoder.keyForDestination(req.get("destination"));
+        if (key == null && req.get("sessionId") != null) key = TelemetryDeltaEncoder.sessionKey(req.get("sessionId"));
+        if (key == null && req.get("panelId") != null) key = TelemetryDeltaEncoder.panelKey(req.get("panelId"));
+        if (key == null) return;
+        log.debug("[WS] resync requested for {}", key);
+        deltas.requestSnapshot(key);
+    }
+}
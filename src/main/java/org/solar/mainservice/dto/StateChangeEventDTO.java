@@ -1,8 +1,10 @@
 package org.solar.mainservice.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.Getter;
+import org.solar.mainservice.control.ParamVector;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -25,6 +27,10 @@ public class StateChangeEventDTO {
 
     private Map<String, Object> paramsTarget; // opcional
 
+    /** Params ya tipados (camino interno del orquestador); si está, tiene prioridad sobre paramsTarget. */
+    @JsonIgnore
+    private ParamVector paramsVector;
+
     private Map<String, Object> details;      // opcional
 
     @Data
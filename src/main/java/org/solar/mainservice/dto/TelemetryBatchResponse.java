@@ -0,0 +1,23 @@
+package org.solar.mainservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class TelemetryBatchResponse {
+    private int accepted;
+    private int rejected;
+    private List<Item> items; // mismo orden que el arreglo recibido
+
+    @Data
+    @AllArgsConstructor
+    public static class Item {
+        private int index;
+        private String status;   // accepted | rejected
+        private String id;       // id asignado si fue aceptada
+        private String error;    // motivo si fue rechazada
+    }
+}
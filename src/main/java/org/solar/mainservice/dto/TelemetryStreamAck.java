@@ -0,0 +1,14 @@
+package org.solar.mainservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/** Línea de progreso que se devuelve por el stream NDJSON de ingesta. */
+@Data
+@AllArgsConstructor
+public class TelemetryStreamAck {
+    private String type;     // progress | done
+    private long received;
+    private long accepted;
+    private long rejected;
+}
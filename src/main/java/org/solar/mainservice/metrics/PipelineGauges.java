@@ -0,0 +1,36 @@
+package org.solar.mainservice.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.solar.mainservice.telemetry.PredictionGate;
+import org.solar.mainservice.telemetry.SessionWindowBuffer;
+import org.solar.mainservice.telemetry.TelemetryWriteBehindBuffer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges del pipeline: se leen en cada scrape de los contadores que ya mantienen los componentes.
+ * Van aparte de {@link PipelineMetrics} porque esos componentes también la usan (evita el ciclo).
+ */
+@Component
+@RequiredArgsConstructor
+public class PipelineGauges implements MeterBinder {
+
+    private final SessionWindowBuffer windows;
+    private final PredictionGate predictionGate;
+    private final TelemetryWriteBehindBuffer writeBehind;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(PipelineMetrics.PREFIX + ".sessions.active", windows, SessionWindowBuffer::activeSessions)
+                .description("Sesiones con ventana en memoria (se liberan al detener la sesión)")
+                .register(registry);
+        Gauge.builder(PipelineMetrics.PREFIX + ".predictions.inflight", predictionGate, PredictionGate::inFlight)
+                .description("Predicciones en curso (a lo sumo una por sesión)")
+                .register(registry);
+        Gauge.builder(PipelineMetrics.PREFIX + ".write_behind.queue", writeBehind, TelemetryWriteBehindBuffer::queueDepth)
+                .description("Lecturas esperando el próximo insert en bloque")
+                .register(registry);
+    }
+}
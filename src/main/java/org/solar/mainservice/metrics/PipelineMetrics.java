@@ -0,0 +1,177 @@
+package org.solar.mainservice.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers y contadores de cada etapa ingest → decisión → comando (solar.pipeline.*).
+ * Todos los meters se registran al arrancar con tags de valores fijos (enums y listas cerradas),
+ * nunca sessionId/panelId: la cardinalidad no crece con la carga y el camino caliente no busca ni aloca meters.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String PREFIX = "solar.pipeline";
+
+    public enum RepoOp { SAVE, INSERT_BATCH }
+
+    /** empty = la IA respondió sin cuerpo; cache = hit local; rejected = circuito abierto (no se llamó). */
+    public enum AiOutcome { SUCCESS, TIMEOUT, ERROR, EMPTY, CACHE, REJECTED }
+
+    /**
+     * relayed / rejected / error = resultado del relay al simulador (ver {@link RelayOutcome});
+     * cancelled = se canceló antes de la respuesta; suppressed = params sin cambios; skipped = sin decisión.
+     */
+    public enum DecisionOutcome {
+        RELAYED, REJECTED, ERROR, CANCELLED, SUPPRESSED, SKIPPED;
+
+        public static DecisionOutcome of(RelayOutcome relay) {
+            return switch (relay) {
+                case OK -> RELAYED;
+                case REJECTED -> REJECTED;
+                case ERROR -> ERROR;
+            };
+        }
+    }
+
+    /** rejected = el simulador respondió ok=false; error = no hubo respuesta (red, timeout, 5xx). */
+    public enum RelayOutcome { OK, REJECTED, ERROR }
+
+    /** Orígenes de predicción conocidos; cualquier otro valor (o null) va como "other". */
+    private static final List<String> SOURCES = List.of("ai", "local", "cache", "other");
+
+    /** Tipos de evento de runtime conocidos (StateChangeController acepta cualquier string del cliente). */
+    private static final Set<String> WS_EVENTS = Set.of(
+            "ai_prediction", "ai_decision", "state_change", "param_change", "param_change_bulk", "control_update");
+
+    private final Map<RepoOp, Timer[]> repo = new EnumMap<>(RepoOp.class);
+    private final Timer[] windowQuery;
+    private final Map<AiOutcome, Timer> ai = new EnumMap<>(AiOutcome.class);
+    private final Map<String, Map<DecisionOutcome, Timer>> decisions = new HashMap<>();
+    private final Map<RelayOutcome, Timer> relay = new EnumMap<>(RelayOutcome.class);
+    private final Map<String, Timer> wsPublish = new HashMap<>();
+    private final Counter wsStomp;
+    private final Counter wsNative;
+    private final Counter readingsAccepted;
+    private final Counter readingsRejected;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        for (RepoOp op : RepoOp.values()) {
+            repo.put(op, new Timer[]{
+                    timer(registry, "repo.save", "Persistencia de lecturas en Mongo", "op", tag(op), "outcome", "success"),
+                    timer(registry, "repo.save", "Persistencia de lecturas en Mongo", "op", tag(op), "outcome", "error")});
+        }
+        windowQuery = new Timer[]{
+                timer(registry, "window.query", "Consulta de ventana en arranque en frío", "outcome", "success"),
+                timer(registry, "window.query", "Consulta de ventana en arranque en frío", "outcome", "error")};
+        for (AiOutcome o : AiOutcome.values()) {
+            ai.put(o, timer(registry, "ai.request", "AiServiceClient.sendToAi por resultado", "outcome", tag(o)));
+        }
+        for (String source : SOURCES) {
+            Map<DecisionOutcome, Timer> byOutcome = new EnumMap<>(DecisionOutcome.class);
+            for (DecisionOutcome o : DecisionOutcome.values()) {
+                byOutcome.put(o, timer(registry, "decision", "DecisionOrchestrator.handlePrediction",
+                        "source", source, "outcome", tag(o)));
+            }
+            decisions.put(source, byOutcome);
+        }
+        for (RelayOutcome o : RelayOutcome.values()) {
+            relay.put(o, timer(registry, "relay", "SimulatorRelay.relay hasta la respuesta del simulador", "outcome", tag(o)));
+        }
+        wsPublish.put("telemetry", timer(registry, "ws.publish", "Publicación de WebSocketNotifier", "kind", "telemetry"));
+        for (String type : WS_EVENTS) {
+            wsPublish.put(type, timer(registry, "ws.publish", "Publicación de WebSocketNotifier", "kind", type));
+        }
+        wsPublish.put("other", timer(registry, "ws.publish", "Publicación de WebSocketNotifier", "kind", "other"));
+        wsStomp = counter(registry, "ws.messages", "Mensajes entregados al broker por destino", "transport", "stomp");
+        wsNative = counter(registry, "ws.messages", "Mensajes entregados al broker por destino", "transport", "native");
+        readingsAccepted = counter(registry, "readings", "Lecturas recibidas", "outcome", "accepted");
+        readingsRejected = counter(registry, "readings", "Lecturas recibidas", "outcome", "rejected");
+    }
+
+    // ===== repositorio =====
+
+    /** Mide la llamada al repositorio desde la suscripción hasta el resultado (o error). */
+    public <T> Mono<T> timeRepo(RepoOp op, Mono<T> call) {
+        return timed(call, repo.get(op));
+    }
+
+    public <T> Mono<T> timeWindowQuery(Mono<T> call) {
+        return timed(call, windowQuery);
+    }
+
+    // ===== IA / decisión / simulador =====
+
+    public void ai(AiOutcome outcome, long startNanos) {
+        record(ai.get(outcome), startNanos);
+    }
+
+    public void decision(String source, DecisionOutcome outcome, long startNanos) {
+        Map<DecisionOutcome, Timer> byOutcome = source != null ? decisions.get(source) : null;
+        record((byOutcome != null ? byOutcome : decisions.get("other")).get(outcome), startNanos);
+    }
+
+    public void relay(RelayOutcome outcome, long startNanos) {
+        record(relay.get(outcome), startNanos);
+    }
+
+    // ===== WebSocket =====
+
+    public void wsTelemetry(long startNanos) {
+        record(wsPublish.get("telemetry"), startNanos);
+    }
+
+    public void wsEvent(String type, long startNanos) {
+        Timer t = type != null ? wsPublish.get(type) : null;
+        record(t != null ? t : wsPublish.get("other"), startNanos);
+    }
+
+    public void wsMessage(boolean nativeTransport) {
+        (nativeTransport ? wsNative : wsStomp).increment();
+    }
+
+    // ===== ingesta =====
+
+    public void readings(long accepted, long rejected) {
+        if (accepted > 0) readingsAccepted.increment(accepted);
+        if (rejected > 0) readingsRejected.increment(rejected);
+    }
+
+    // ===== helpers =====
+
+    private static <T> Mono<T> timed(Mono<T> call, Timer[] okAndError) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call
+                    .doOnSuccess(v -> record(okAndError[0], start))
+                    .doOnError(e -> record(okAndError[1], start));
+        });
+    }
+
+    private static void record(Timer timer, long startNanos) {
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String tag(Enum<?> e) {
+        return e.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static Timer timer(MeterRegistry registry, String name, String description, String... tags) {
+        return Timer.builder(PREFIX + "." + name).description(description).tags(tags).register(registry);
+    }
+
+    private static Counter counter(MeterRegistry registry, String name, String description, String... tags) {
+        return Counter.builder(PREFIX + "." + name).description(description).tags(tags).register(registry);
+    }
+}
@@ -0,0 +1,16 @@
+package org.solar.mainservice.repository;
+
+import org.solar.mainservice.model.TelemetryReading;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+public interface TelemetryRepositoryCustom {
+
+    /**
+     * Inserción en bloque sin orden (un solo round trip). Asigna ids a las lecturas que no lo traen
+     * y devuelve las posiciones de la lista que Mongo rechazó.
+     */
+    Mono<Set<Integer>> insertUnordered(List<TelemetryReading> readings);
+}
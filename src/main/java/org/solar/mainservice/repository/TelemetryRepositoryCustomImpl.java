@@ -0,0 +1,53 @@
+package org.solar.mainservice.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.solar.mainservice.model.TelemetryReading;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class TelemetryRepositoryCustomImpl implements TelemetryRepositoryCustom {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final ReactiveMongoTemplate template;
+
+    @Override
+    public Mono<Set<Integer>> insertUnordered(List<TelemetryReading> readings) {
+        if (readings.isEmpty()) return Mono.just(Set.of());
+        readings.forEach(r -> { if (r.getId() == null) r.setId(new ObjectId().toHexString()); });
+
+        return template.bulkOps(BulkOperations.BulkMode.UNORDERED, TelemetryReading.class)
+                .insert(readings)
+                .execute()
+                .thenReturn(Set.<Integer>of())
+                // Fallo parcial: el resto de documentos sí quedó insertado
+                .onErrorResume(e -> writeErrors(e) != null, e -> Mono.just(failedIndexes(writeErrors(e))));
+    }
+
+    private static List<BulkWriteError> writeErrors(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof BulkOperationException boe) return boe.getErrors();
+            if (t instanceof MongoBulkWriteException mbe) return mbe.getWriteErrors();
+        }
+        return null;
+    }
+
+    /** Clave duplicada = ese _id ya está guardado (p.ej. reintento de un lote insertado en parte): no es fallo. */
+    private static Set<Integer> failedIndexes(List<BulkWriteError> errors) {
+        Set<Integer> out = new HashSet<>();
+        for (BulkWriteError err : errors) {
+            if (err.getCode() != DUPLICATE_KEY) out.add(err.getIndex());
+        }
+        return out;
+    }
+}
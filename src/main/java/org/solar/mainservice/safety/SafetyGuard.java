@@ -7,7 +7,6 @@ import org.springframework.stereotype.Component;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @Component
 public class SafetyGuard {
@@ -140,12 +139,7 @@ public class SafetyGuard {
     }
 
     private static double get01(Map<String,Object> m, String k) {
-        return Optional.ofNullable(m.get(k))
-                .filter(Number.class::isInstance)
-                .map(Number.class::cast)
-                .map(Number::doubleValue)
-                .map(v -> clamp(v,0,1))
-                .orElse(0.0);
+        return m.get(k) instanceof Number n ? clamp(n.doubleValue(), 0, 1) : 0.0;
     }
     private static double lerp(double lo, double hi, double x01){ return lo + (hi - lo) * clamp(x01,0,1); }
     private static double clamp(double v, double lo, double hi){ return Math.max(lo, Math.min(hi, v)); }
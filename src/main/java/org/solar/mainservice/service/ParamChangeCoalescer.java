@@ -0,0 +1,131 @@
+package org.solar.mainservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.control.ParamVector;
+import org.solar.mainservice.dto.StateChangeEventDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Junta los param_change de un mismo panel (de la misma sesión) emitidos dentro de una ventana corta en un único envío:
+ * merge = un param_change con los params combinados (gana el último valor de cada param);
+ * bulk = un param_change_bulk con cada cambio en details.changes. Todos los llamadores reciben la misma respuesta.
+ */
+@Slf4j
+@Component
+public class ParamChangeCoalescer {
+
+    @Value("${simulator.coalesce.window-ms:0}")
+    private long windowMs;                 // 0 = sin coalescing
+
+    @Value("${simulator.coalesce.mode:merge}")
+    private String mode;                   // merge | bulk
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private static final class Pending {
+        final List<StateChangeEventDTO> events = new ArrayList<>();
+        final Sinks.One<Map<String, Object>> result = Sinks.one();
+        boolean closed;
+    }
+
+    public boolean isEnabled() { return windowMs > 0; }
+
+    public Mono<Map<String, Object>> submit(StateChangeEventDTO evt,
+                                            Function<StateChangeEventDTO, Mono<Map<String, Object>>> sender) {
+        submitted.incrementAndGet();
+        String key = evt.getSessionId() + "|" + evt.getPanelId();  // panelId se repite entre sesiones
+        while (true) {
+            boolean[] created = new boolean[1];
+            Pending p = pending.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return new Pending();
+            });
+            synchronized (p) {
+                if (p.closed) { // ya se está enviando: abrir una ventana nueva
+                    pending.remove(key, p);
+                    continue;
+                }
+                p.events.add(evt);
+            }
+            if (created[0]) {
+                Mono.delay(Duration.ofMillis(windowMs))
+                        .subscribe(t -> flush(key, p, sender));
+            }
+            return p.result.asMono();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", isEnabled());
+        m.put("windowMs", windowMs);
+        m.put("mode", mode);
+        m.put("submitted", submitted.get());
+        m.put("sent", sent.get());
+        m.put("coalesced", coalesced.get());
+        m.put("pendingPanels", pending.size());
+        return m;
+    }
+
+    private void flush(String key, Pending p, Function<StateChangeEventDTO, Mono<Map<String, Object>>> sender) {
+        List<StateChangeEventDTO> events;
+        synchronized (p) {
+            p.closed = true;
+            events = List.copyOf(p.events);
+        }
+        pending.remove(key, p);
+
+        StateChangeEventDTO combined = events.size() == 1 ? events.get(0) : combine(events);
+        if (events.size() > 1) log.debug("[SIM] coalesced {} param_change for session|panel={}", events.size(), key);
+        sent.incrementAndGet();
+        coalesced.addAndGet(events.size() - 1);
+        sender.apply(combined).subscribe(
+                r -> p.result.tryEmitValue(r),
+                e -> p.result.tryEmitError(e),
+                () -> p.result.tryEmitEmpty());
+    }
+
+    private StateChangeEventDTO combine(List<StateChangeEventDTO> events) {
+        StateChangeEventDTO last = events.get(events.size() - 1);
+        StateChangeEventDTO out = new StateChangeEventDTO();
+        out.setSessionId(last.getSessionId());
+        out.setPanelId(last.getPanelId());
+        out.setVersion(last.getVersion());
+        out.setCause(last.getCause());
+        out.setTimestamp(last.getTimestamp());
+        out.setPrev(events.get(0).getPrev());
+        out.setNext(last.getNext());
+
+        if ("bulk".equalsIgnoreCase(mode)) {
+            List<Map<String, Object>> changes = new ArrayList<>(events.size());
+            for (StateChangeEventDTO e : events) {
+                ParamVector params = SimulatorRelay.coerceParams(e);
+                if (!params.isEmpty()) changes.add(Map.of("params", params.toSimulatorMap()));
+            }
+            out.setType("param_change_bulk");
+            out.setDetails(Map.of("changes", changes));
+        } else {
+            ParamVector merged = new ParamVector();
+            for (StateChangeEventDTO e : events) merged.merge(SimulatorRelay.coerceParams(e));
+            out.setType("param_change");
+            out.setParamsVector(merged);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,9 @@
+package org.solar.mainservice.service;
+
+/**
+ * Componentes con estado en memoria por sesión que deben liberarse cuando la sesión termina.
+ */
+public interface SessionLifecycleListener {
+
+    void onSessionStopped(String sessionId);
+}
@@ -5,30 +5,41 @@ import org.solar.mainservice.dto.SessionStartRequest;
 import org.solar.mainservice.dto.SessionStartResponse;
 import org.solar.mainservice.model.Session;
 import org.solar.mainservice.repository.SessionRepository;
+import org.solar.mainservice.telemetry.PredictionTriggerPolicy;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
 @AllArgsConstructor
 public class SessionService {
     private final SessionRepository repo;
+    private final List<SessionLifecycleListener> listeners;
+    private final PredictionTriggerPolicy triggerPolicy;
 
     public Mono<SessionStartResponse> start(SessionStartRequest req) {
         String id = (req.getSessionId() == null || req.getSessionId().isBlank())
                 ? UUID.randomUUID().toString()
                 : req.getSessionId();
 
+        // meta.trigger opcional: cadencia de predicción propia de la sesión
+        if (req.getMeta() != null && req.getMeta().get("trigger") instanceof Map<?, ?> trigger) {
+            triggerPolicy.configure(id, trigger);
+        }
+
         Session s = new Session(id, req.getPanelId(), Instant.now(), null, "active");
         return repo.save(s).map(saved -> new SessionStartResponse(saved.getId(), saved.getPanelId(), saved.getStartTime()));
     }
 
     public Mono<Session> stop(String id) {
         return repo.findById(id)
-                .flatMap(s -> { s.setEndTime(Instant.now()); s.setStatus("ended"); return repo.save(s); });
+                .flatMap(s -> { s.setEndTime(Instant.now()); s.setStatus("ended"); return repo.save(s); })
+                .doFinally(sig -> listeners.forEach(l -> l.onSessionStopped(id)));
     }
 
     public Flux<Session> active() { return repo.findByStatus("active"); }
@@ -0,0 +1,47 @@
+package org.solar.mainservice.service;
+
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cotas para los mapas en memoria por sesión: la ingesta acepta cualquier sessionId y una lectura que llega
+ * después de detener la sesión vuelve a crear su estado, así que {@link SessionLifecycleListener} no alcanza.
+ * Se barren las entradas sin uso (idle TTL) y, si se supera el máximo, se descarta la usada hace más tiempo.
+ */
+public final class SessionStateBounds {
+
+    private SessionStateBounds() {}
+
+    /** Quita las entradas sin uso desde antes de {@code cutoffMs} que {@code removable} acepte; devuelve cuántas. */
+    public static <K, V> int evictIdle(Map<K, V> map, ToLongFunction<V> lastUsedMs, Predicate<V> removable, long cutoffMs) {
+        int[] evicted = new int[1];
+        map.values().removeIf(v -> {
+            boolean idle = lastUsedMs.applyAsLong(v) < cutoffMs && removable.test(v);
+            if (idle) evicted[0]++;
+            return idle;
+        });
+        return evicted[0];
+    }
+
+    /** Mientras el mapa supere {@code max}, quita la entrada (removible) usada hace más tiempo; devuelve cuántas. */
+    public static <K, V> int evictOldest(Map<K, V> map, ToLongFunction<V> lastUsedMs, Predicate<V> removable, int max) {
+        int evicted = 0;
+        while (map.size() > max) {
+            K oldest = null;
+            V oldestValue = null;
+            long oldestTs = Long.MAX_VALUE;
+            for (Map.Entry<K, V> e : map.entrySet()) {
+                long ts = lastUsedMs.applyAsLong(e.getValue());
+                if (ts < oldestTs && removable.test(e.getValue())) {
+                    oldestTs = ts;
+                    oldest = e.getKey();
+                    oldestValue = e.getValue();
+                }
+            }
+            if (oldest == null || !map.remove(oldest, oldestValue)) return evicted;
+            evicted++;
+        }
+        return evicted;
+    }
+}
@@ -2,7 +2,11 @@ package org.solar.mainservice.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.control.Param;
+import org.solar.mainservice.control.ParamVector;
 import org.solar.mainservice.dto.StateChangeEventDTO;
+import org.solar.mainservice.metrics.PipelineMetrics;
+import org.solar.mainservice.metrics.PipelineMetrics.RelayOutcome;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
@@ -17,18 +21,29 @@ import java.util.*;
 @RequiredArgsConstructor
 public class SimulatorRelay {
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient simulatorWebClient;
+    private final ParamChangeCoalescer coalescer;
+    private final PipelineMetrics metrics;
 
     @Value("${simulator.control-url:http://localhost:7072/commands}")
     private String controlUrl;
 
-    private static final Set<String> KNOWN_PARAMS = Set.of(
-            "robotSpeed","brushRpm","waterPressure","detergentFlowRate","vacuumPower",
-            "turnRadius","passOverlap","pathSpacing","squeegeePressure","dwellTime",
-            "rpmRampRate","maxWaterPerMin","maxEnergyPerMin"
-    );
-
     public Mono<Map<String,Object>> relay(StateChangeEventDTO evt) {
+        long start = System.nanoTime();
+        // param_change del mismo panel en ráfaga → un solo envío
+        Mono<Map<String,Object>> sent = coalescer.isEnabled() && "param_change".equalsIgnoreCase(evt.getType()) && evt.getPanelId() != null
+                ? coalescer.submit(evt, this::send)
+                : send(evt);
+        return sent.doOnSuccess(r -> metrics.relay(outcome(r), start));
+    }
+
+    /** send() no propaga errores: los convierte en {ok:false, error:...}. */
+    public static RelayOutcome outcome(Map<String,Object> r) {
+        if (r == null || r.containsKey("error")) return RelayOutcome.ERROR;
+        return Boolean.FALSE.equals(r.get("ok")) ? RelayOutcome.REJECTED : RelayOutcome.OK;
+    }
+
+    private Mono<Map<String,Object>> send(StateChangeEventDTO evt) {
 
         log.info(evt.toString());
         Map<String,Object> body = new LinkedHashMap<>();
@@ -46,15 +61,15 @@ public class SimulatorRelay {
                 }
             }
             case "param_change" -> {
-                Map<String, Object> params = coerceParams(evt.getParamsTarget(), evt.getDetails());
-                if (!params.isEmpty()) body.put("params", params);
+                ParamVector params = coerceParams(evt);
+                if (!params.isEmpty()) body.put("params", params.toSimulatorMap());
             }
             case "param_change_bulk" -> {
                 List<Map<String,Object>> bulk = extractBulk(evt);
                 if (!bulk.isEmpty()) body.put("bulk", bulk);
                 else {
-                    Map<String, Object> params = coerceParams(evt.getParamsTarget(), evt.getDetails());
-                    if (!params.isEmpty()) body.put("params", params);
+                    ParamVector params = coerceParams(evt);
+                    if (!params.isEmpty()) body.put("params", params.toSimulatorMap());
                 }
             }
             case "control_update" -> {
@@ -64,15 +79,15 @@ public class SimulatorRelay {
                 if (nextMode != null && !nextMode.isBlank()) {
                     body.put("state", Map.of("mode", nextMode));
                 }
-                Map<String,Object> params = coerceParams(evt.getParamsTarget(), evt.getDetails());
-                if (!params.isEmpty()) body.put("params", params);
+                ParamVector params = coerceParams(evt);
+                if (!params.isEmpty()) body.put("params", params.toSimulatorMap());
             }
             default -> {
                 // nada: dejamos que el simulador responda si no hay contenido útil
             }
         }
 
-        return webClientBuilder.build()
+        return simulatorWebClient
                 .post().uri(controlUrl)
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(body)
@@ -81,23 +96,17 @@ public class SimulatorRelay {
                 .onErrorResume(e -> Mono.just(Map.of("ok", false, "error", e.getMessage())));
     }
 
-    /** Convierte paramsTarget/details en { param: number } y normaliza aliases/snake_case → camelCase */
-    private Map<String,Object> coerceParams(Map<String,Object> paramsTarget, Map<String,Object> details) {
-        Map<String,Object> out = new LinkedHashMap<>();
-        Map<String,Object> src = new LinkedHashMap<>();
-        if (paramsTarget != null) src.putAll(paramsTarget);
-
+    /**
+     * Params del evento como vector: el ya tipado del orquestador, o paramsTarget + details.params
+     * resueltos con la tabla de aliases de {@link Param} (snake_case, minúsculas, brushRPM).
+     */
+    static ParamVector coerceParams(StateChangeEventDTO evt) {
+        if (evt.getParamsVector() != null) return evt.getParamsVector();
+        ParamVector out = ParamVector.fromMap(evt.getParamsTarget());
         // Si alguien metió params en details, los recogemos también.
-        if (details != null && details.get("params") instanceof Map<?,?> m) {
-            m.forEach((k,v) -> src.put(String.valueOf(k), v));
+        if (evt.getDetails() != null && evt.getDetails().get("params") instanceof Map<?,?> m) {
+            out.merge(ParamVector.fromMap(m));
         }
-
-        src.forEach((k, v) -> {
-            String key = normalizeKey(k);
-            if (!KNOWN_PARAMS.contains(key)) return; // ignoramos lo que el sim no conoce
-            Object val = toNumber(v);
-            if (val != null) out.put(key, val);
-        });
         return out;
     }
 
@@ -106,37 +115,11 @@ public class SimulatorRelay {
         if (evt.getDetails() != null && evt.getDetails().get("changes") instanceof List<?> list) {
             for (Object o : list) {
                 if (o instanceof Map<?,?> m && m.get("params") instanceof Map<?,?> pm) {
-                    Map<String,Object> one = Map.of("params", coerceParams((Map<String,Object>) pm, null));
-                    if (!((Map<?,?>)one.get("params")).isEmpty()) bulk.add(one);
+                    ParamVector params = ParamVector.fromMap(pm);
+                    if (!params.isEmpty()) bulk.add(Map.of("params", params.toSimulatorMap()));
                 }
             }
         }
         return bulk;
     }
-
-    /** snake_case → camelCase y aliases típicos */
-    private String normalizeKey(String raw) {
-        if (raw == null) return "";
-        String k = raw.trim();
-        // aliases puntuales
-        if (k.equalsIgnoreCase("brushRPM")) return "brushRpm";
-        // snake_case → camelCase
-        if (k.contains("_")) {
-            String[] parts = k.toLowerCase(Locale.ROOT).split("_");
-            StringBuilder sb = new StringBuilder(parts[0]);
-            for (int i=1;i<parts.length;i++) {
-                sb.append(parts[i].substring(0,1).toUpperCase()).append(parts[i].substring(1));
-            }
-            k = sb.toString();
-        }
-        return k;
-    }
-
-    private Number toNumber(Object v) {
-        if (v instanceof Number n) return n.doubleValue();
-        if (v instanceof String s) {
-            try { return Double.parseDouble(s); } catch (Exception ignored) {}
-        }
-        return null;
-    }
-}
\ No newline at end of file
+}
@@ -2,15 +2,30 @@ package org.solar.mainservice.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.solar.mainservice.ai.client.AiServiceClient;
+import org.solar.mainservice.dto.TelemetryBatchResponse;
+import org.solar.mainservice.metrics.PipelineMetrics;
 import org.solar.mainservice.model.TelemetryReading;
 import org.solar.mainservice.repository.TelemetryRepository;
+import org.solar.mainservice.telemetry.PredictionGate;
+import org.solar.mainservice.telemetry.PredictionTriggerPolicy;
+import org.solar.mainservice.telemetry.SessionWindowBuffer;
 import org.solar.mainservice.telemetry.TelemetryWindowProcessor;
+import org.solar.mainservice.telemetry.TelemetryWriteBehindBuffer;
 import org.solar.mainservice.websocket.WebSocketNotifier;
+import org.solar.mainservice.dto.TelemetryStreamAck;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Service
@@ -18,34 +33,167 @@ import java.util.List;
 public class TelemetryService {
     private final TelemetryRepository repo;
     private final TelemetryWindowProcessor windowProcessor;
+    private final SessionWindowBuffer windows;
+    private final TelemetryWriteBehindBuffer writeBehind;
+    private final PredictionGate predictionGate;
+    private final PredictionTriggerPolicy triggerPolicy;
     private final WebSocketNotifier ws;
+    private final PipelineMetrics metrics;
 
+    /** Una línea del stream NDJSON: la lectura parseada o, si no se pudo parsear, el motivo (cuenta como rechazada). */
+    public record StreamLine(TelemetryReading reading, String error) {
+        public static StreamLine of(TelemetryReading reading) { return new StreamLine(reading, null); }
+        public static StreamLine malformed(String error) { return new StreamLine(null, error); }
+    }
+
+    @Value("${telemetry.stream.concurrency:8}")
+    private int streamConcurrency;
+
+    @Value("${telemetry.stream.ack-every:100}")
+    private int streamAckEvery;
+
+    @Value("${telemetry.stream.ack-interval-ms:1000}")
+    private long streamAckIntervalMs;
+
+    /** Lectura suelta: si el write-behind está lleno falla con {@link TelemetryWriteBehindBuffer.BufferFullException}. */
     public Mono<Void> processReading(TelemetryReading reading) {
-        return repo.save(reading)
-                .doOnNext(saved -> log.info("Saved {}", saved))
-                .doOnError(error -> log.error("Error saving reading: {}", error.toString()))
+        return ingest(reading, false);
+    }
+
+    /** @param waitForSlot true = con el write-behind lleno espera hueco en vez de rechazar (stream) */
+    private Mono<Void> ingest(TelemetryReading reading, boolean waitForSlot) {
+        return persist(reading, waitForSlot)
                 .doOnNext(ws::sendTelemetry)
-                .doOnNext(saved -> triggerPrediction(saved.getSessionId()))
+                .doOnNext(this::triggerPrediction)
+                .doOnSuccess(saved -> metrics.readings(1, 0))
+                .doOnError(e -> metrics.readings(0, 1))
                 .then();
     }
 
-    private void triggerPrediction(String sessionId) {
-        repo.findTop10BySessionIdOrderByTimestampDesc(sessionId)
-                .collectList()
-                .filter(list -> list.size() == 10)
-                .flatMap(last10 -> {
-                    String panelId = safePanelId(last10);
-                    return windowProcessor.processWindow(sessionId, panelId, last10, /*applyControl*/ true);
+    /**
+     * Con write-behind activo la lectura sigue en memoria (WebSocket y ventana) sin esperar a Mongo.
+     */
+    private Mono<TelemetryReading> persist(TelemetryReading reading, boolean waitForSlot) {
+        if (writeBehind.isEnabled()) {
+            if (waitForSlot) return writeBehind.enqueueWhenReady(reading).thenReturn(reading);
+            return Mono.defer(() -> writeBehind.enqueue(reading)
+                    ? Mono.just(reading)
+                    : Mono.error(new TelemetryWriteBehindBuffer.BufferFullException()));
+        }
+        return metrics.timeRepo(PipelineMetrics.RepoOp.SAVE, repo.save(reading))
+                .doOnNext(saved -> log.info("Saved {}", saved))
+                .doOnError(error -> log.error("Error saving reading: {}", error.toString()));
+    }
+
+    /**
+     * Lote de lecturas (posiblemente de varias sesiones): un único insert en bloque sin orden,
+     * WebSocket por lectura y una sola evaluación de ventana por sesión afectada.
+     */
+    public Mono<TelemetryBatchResponse> processBatch(List<TelemetryReading> readings) {
+        TelemetryBatchResponse.Item[] items = new TelemetryBatchResponse.Item[readings.size()];
+        List<TelemetryReading> candidates = new ArrayList<>();
+        List<Integer> candidateIdx = new ArrayList<>();
+
+        for (int i = 0; i < readings.size(); i++) {
+            String error = validate(readings.get(i));
+            if (error != null) {
+                items[i] = rejected(i, error);
+            } else {
+                candidates.add(readings.get(i));
+                candidateIdx.add(i);
+            }
+        }
+
+        return metrics.timeRepo(PipelineMetrics.RepoOp.INSERT_BATCH, repo.insertUnordered(candidates))
+                .onErrorResume(e -> {
+                    log.error("Error saving batch: {}", e.toString());
+                    Set<Integer> all = new HashSet<>();
+                    for (int i = 0; i < candidates.size(); i++) all.add(i);
+                    return Mono.just(all);
                 })
+                .map(failed -> {
+                    Map<String, List<TelemetryReading>> bySession = new LinkedHashMap<>();
+                    for (int j = 0; j < candidates.size(); j++) {
+                        int i = candidateIdx.get(j);
+                        TelemetryReading r = candidates.get(j);
+                        if (failed.contains(j)) {
+                            items[i] = rejected(i, "persist_failed");
+                            continue;
+                        }
+                        items[i] = new TelemetryBatchResponse.Item(i, "accepted", r.getId(), null);
+                        ws.sendTelemetry(r);
+                        bySession.computeIfAbsent(r.getSessionId(), k -> new ArrayList<>()).add(r);
+                    }
+                    bySession.forEach((sessionId, list) -> triggerPrediction(sessionId, windows.appendAll(sessionId, list), list.size()));
+
+                    int accepted = candidates.size() - failed.size();
+                    metrics.readings(accepted, readings.size() - accepted);
+                    log.info("[BATCH] received={} accepted={} sessions={}", readings.size(), accepted, bySession.size());
+                    return new TelemetryBatchResponse(accepted, readings.size() - accepted, List.of(items));
+                });
+    }
+
+    /**
+     * Ingesta continua: cada lectura pasa por el mismo pipeline que {@link #processReading}, con a lo sumo
+     * {@code telemetry.stream.concurrency} lecturas en curso. La demanda se propaga hacia el productor
+     * (no se lee más del socket de lo que se procesa; con el write-behind lleno se espera hueco)
+     * y se emite un ack por tamaño o por tiempo.
+     */
+    public Flux<TelemetryStreamAck> processStream(Flux<StreamLine> lines) {
+        AtomicLong received = new AtomicLong();
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+
+        return lines
+                .doOnNext(l -> received.incrementAndGet())
+                .flatMap(l -> ingestOne(l)
+                        .doOnNext(ok -> (ok ? accepted : rejected).incrementAndGet()), streamConcurrency)
+                .bufferTimeout(streamAckEvery, Duration.ofMillis(streamAckIntervalMs), true)
+                .map(outcomes -> new TelemetryStreamAck("progress", received.get(), accepted.get(), rejected.get()))
+                .concatWith(Mono.fromSupplier(() ->
+                        new TelemetryStreamAck("done", received.get(), accepted.get(), rejected.get())))
+                .doOnComplete(() -> log.info("[STREAM] completed received={} accepted={} rejected={}",
+                        received.get(), accepted.get(), rejected.get()));
+    }
+
+    private Mono<Boolean> ingestOne(StreamLine line) {
+        if (line.error() != null || validate(line.reading()) != null) return Mono.just(false);
+        return ingest(line.reading(), true)
+                .thenReturn(true)
+                .onErrorReturn(false);
+    }
+
+    private void triggerPrediction(TelemetryReading saved) {
+        triggerPrediction(saved.getSessionId(), windows.append(saved), 1);
+    }
+
+    private void triggerPrediction(String sessionId, Mono<List<TelemetryReading>> pendingWindow, int newReadings) {
+        pendingWindow
+                .filter(window -> window.size() >= windows.windowSize())
+                .filter(window -> triggerPolicy.shouldTrigger(sessionId, window, newReadings))
                 .doOnError(e -> log.warn("Prediction skipped: {}", e.toString()))
                 .onErrorResume(e -> Mono.empty())
-                .subscribe();
+                .subscribe(window -> {
+                    String panelId = safePanelId(window);
+                    predictionGate.submit(sessionId, ticket ->
+                            windowProcessor.processWindow(sessionId, panelId, window, /*applyControl*/ true, ticket));
+                });
+    }
+
+    private String validate(TelemetryReading r) {
+        if (r == null) return "empty_item";
+        if (r.getSessionId() == null || r.getSessionId().isBlank()) return "sessionId is required";
+        return null;
+    }
+
+    private static TelemetryBatchResponse.Item rejected(int index, String error) {
+        return new TelemetryBatchResponse.Item(index, "rejected", null, error);
     }
 
-    private String safePanelId(List<TelemetryReading> last10) {
-        if (last10.isEmpty()) return null;
-        String p = last10.get(0).getPanelId();
-        if (p == null && last10.size() > 1) p = last10.get(1).getPanelId();
+    private String safePanelId(List<TelemetryReading> window) {
+        if (window.isEmpty()) return null;
+        String p = window.get(0).getPanelId();
+        if (p == null && window.size() > 1) p = window.get(1).getPanelId();
         return p;
     }
 }
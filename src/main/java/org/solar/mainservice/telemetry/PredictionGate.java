@@ -0,0 +1,180 @@
+package org.solar.mainservice.telemetry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.service.SessionLifecycleListener;
+import org.solar.mainservice.service.SessionStateBounds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Compuerta de predicciones por sesión (latest-wins): a lo sumo una predicción en curso por sesión,
+ * una sola ventana en espera (la más nueva reemplaza a la anterior) y descarte de resultados viejos.
+ */
+@Slf4j
+@Component
+public class PredictionGate implements SessionLifecycleListener {
+
+    @Value("${ai.gate.max-result-age-ms:5000}")
+    private long maxResultAgeMs;
+
+    @Value("${telemetry.session-state.idle-ttl-ms:600000}")
+    private long idleTtlMs;
+
+    @Value("${telemetry.session-state.max-sessions:10000}")
+    private int maxSessions;
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    /** Identifica una ventana enviada a predecir; se usa para validar su resultado. */
+    public static final class Ticket {
+        private final Lane lane;
+        private final long seq;
+        private final long submittedAtNanos;
+
+        private Ticket(Lane lane, long seq) {
+            this.lane = lane;
+            this.seq = seq;
+            this.submittedAtNanos = System.nanoTime();
+        }
+
+        public long seq() { return seq; }
+    }
+
+    /**
+     * Ejecuta el trabajo si la sesión no tiene otro en curso; si lo tiene, lo deja pendiente
+     * reemplazando al que ya estuviera esperando.
+     */
+    public void submit(String sessionId, Function<Ticket, Mono<Void>> job) {
+        submitted.incrementAndGet();
+        boolean[] created = new boolean[1];
+        Lane lane = lanes.computeIfAbsent(sessionId, k -> {
+            created[0] = true;
+            return new Lane();
+        });
+        if (created[0] && lanes.size() > maxSessions) {
+            int n = SessionStateBounds.evictOldest(lanes, Lane::lastUsedMs, PredictionGate::evictable, maxSessions);
+            if (n > 0) log.warn("[GATE] max-sessions={} reached, evicted {} lanes", maxSessions, n);
+        }
+        Pending next;
+        synchronized (lane) {
+            lane.lastUsedMs = System.currentTimeMillis();
+            next = new Pending(new Ticket(lane, ++lane.seq), job);
+            if (lane.running) {
+                if (lane.queued != null) coalesced.incrementAndGet();
+                lane.queued = next;
+                return;
+            }
+            lane.running = true;
+        }
+        run(lane, next);
+    }
+
+    /**
+     * true si el resultado de la ventana debe aplicarse: la sesión sigue viva, no se aplicó ya
+     * una ventana más nueva y el resultado no superó la antigüedad máxima.
+     */
+    public boolean accept(Ticket ticket) {
+        Lane lane = ticket.lane;
+        boolean tooOld = System.nanoTime() - ticket.submittedAtNanos > TimeUnit.MILLISECONDS.toNanos(maxResultAgeMs);
+        synchronized (lane) {
+            if (!lane.closed && !tooOld && ticket.seq > lane.lastApplied) {
+                lane.lastApplied = ticket.seq;
+                return true;
+            }
+        }
+        dropped.incrementAndGet();
+        log.info("[GATE] stale result dropped seq={} tooOld={}", ticket.seq, tooOld);
+        return false;
+    }
+
+    @Override
+    public void onSessionStopped(String sessionId) {
+        Lane lane = lanes.remove(sessionId);
+        if (lane == null) return;
+        synchronized (lane) {
+            lane.closed = true;
+            lane.queued = null;
+        }
+    }
+
+    /** Libera las sesiones sin predicciones desde idle-ttl (nunca una con trabajo en curso). */
+    @Scheduled(fixedDelayString = "${telemetry.session-state.sweep-interval-ms:60000}")
+    void evictIdle() {
+        int n = SessionStateBounds.evictIdle(lanes, Lane::lastUsedMs, PredictionGate::evictable,
+                System.currentTimeMillis() - idleTtlMs);
+        if (n > 0) log.info("[GATE] evicted {} idle lanes", n);
+    }
+
+    /** Sin trabajo en curso ni en espera no queda ningún ticket de esta lane por validar. */
+    private static boolean evictable(Lane lane) {
+        synchronized (lane) {
+            return !lane.running;
+        }
+    }
+
+    public long inFlight() { return inFlight.get(); }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("sessions", lanes.size());
+        m.put("inFlight", inFlight.get());
+        m.put("submitted", submitted.get());
+        m.put("coalesced", coalesced.get());
+        m.put("dropped", dropped.get());
+        return m;
+    }
+
+    private void run(Lane lane, Pending p) {
+        inFlight.incrementAndGet();
+        Mono.defer(() -> p.job.apply(p.ticket))
+                .onErrorResume(e -> {
+                    log.warn("[GATE] prediction failed: {}", e.toString());
+                    return Mono.empty();
+                })
+                .doFinally(sig -> {
+                    inFlight.decrementAndGet();
+                    runNext(lane);
+                })
+                .subscribe();
+    }
+
+    private void runNext(Lane lane) {
+        Pending next;
+        synchronized (lane) {
+            next = lane.queued;
+            lane.queued = null;
+            if (next == null || lane.closed) {
+                lane.running = false;
+                return;
+            }
+        }
+        run(lane, next);
+    }
+
+    private static final class Lane {
+        private volatile long lastUsedMs = System.currentTimeMillis();
+        private long seq;
+        private long lastApplied;
+        private boolean running;
+        private boolean closed;
+        private Pending queued;
+
+        long lastUsedMs() { return lastUsedMs; }
+    }
+
+    private record Pending(Ticket ticket, Function<Ticket, Mono<Void>> job) {}
+}
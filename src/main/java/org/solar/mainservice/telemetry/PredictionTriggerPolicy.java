@@ -0,0 +1,194 @@
+package org.solar.mainservice.telemetry;
+
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.ai.mapper.AiPointMapper;
+import org.solar.mainservice.model.TelemetryReading;
+import org.solar.mainservice.service.SessionLifecycleListener;
+import org.solar.mainservice.service.SessionStateBounds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decide cuándo una ventana nueva amerita predicción (en vez de predecir en cada lectura):
+ * <ul>
+ *   <li>every: cada lectura (comportamiento histórico)</li>
+ *   <li>stride: cada N lecturas</li>
+ *   <li>tumbling: ventanas sin solapamiento (cada window.size lecturas)</li>
+ *   <li>event: cuando polvo, potencia o modo cambian más que un umbral</li>
+ * </ul>
+ * En todos los modos se respeta un intervalo mínimo y se fuerza una predicción si pasó la staleness máxima.
+ * Se puede ajustar por sesión con {@code meta.trigger} al iniciarla.
+ */
+@Slf4j
+@Component
+public class PredictionTriggerPolicy implements SessionLifecycleListener {
+
+    public enum Mode { EVERY, STRIDE, TUMBLING, EVENT }
+
+    public record Settings(Mode mode, int stride, long minIntervalMs, long maxStalenessMs,
+                           double dustDelta, double powerDeltaRel) {}
+
+    private final SessionWindowBuffer windows;
+    private final Settings defaults;
+
+    private final Map<String, Settings> overrides = new ConcurrentHashMap<>();
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    @Value("${telemetry.session-state.idle-ttl-ms:600000}")
+    private long idleTtlMs;
+
+    @Value("${telemetry.session-state.max-sessions:10000}")
+    private int maxSessions;
+
+    private final AtomicLong triggered = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public PredictionTriggerPolicy(SessionWindowBuffer windows,
+                                   @Value("${telemetry.trigger.mode:every}") String mode,
+                                   @Value("${telemetry.trigger.stride:5}") int stride,
+                                   @Value("${telemetry.trigger.min-interval-ms:0}") long minIntervalMs,
+                                   @Value("${telemetry.trigger.max-staleness-ms:0}") long maxStalenessMs,
+                                   @Value("${telemetry.trigger.event.dust-delta:0.02}") double dustDelta,
+                                   @Value("${telemetry.trigger.event.power-delta-rel:0.05}") double powerDeltaRel) {
+        this.windows = windows;
+        this.defaults = new Settings(Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)), Math.max(1, stride),
+                minIntervalMs, maxStalenessMs, dustDelta, powerDeltaRel);
+    }
+
+    /**
+     * Ajustes propios de la sesión a partir de {@code meta.trigger} (las claves ausentes heredan el default).
+     * Viene del cliente: un modo desconocido cae al default con un warning en vez de fallar el inicio de sesión.
+     */
+    public void configure(String sessionId, Map<?, ?> trigger) {
+        if (sessionId == null || trigger == null || trigger.isEmpty()) return;
+        Settings s = new Settings(
+                modeOr(sessionId, trigger.get("mode"), defaults.mode()),
+                Math.max(1, intOr(trigger.get("stride"), defaults.stride())),
+                longOr(trigger.get("minIntervalMs"), defaults.minIntervalMs()),
+                longOr(trigger.get("maxStalenessMs"), defaults.maxStalenessMs()),
+                doubleOr(trigger.get("dustDelta"), defaults.dustDelta()),
+                doubleOr(trigger.get("powerDeltaRel"), defaults.powerDeltaRel()));
+        overrides.put(sessionId, s);
+        log.info("[TRIGGER] session={} settings={}", sessionId, s);
+    }
+
+    /**
+     * @param window      ventana vigente (DESC)
+     * @param newReadings lecturas agregadas desde la última evaluación (1, o el tamaño del lote)
+     */
+    public boolean shouldTrigger(String sessionId, List<TelemetryReading> window, int newReadings) {
+        Settings cfg = overrides.getOrDefault(sessionId, defaults);
+        boolean[] created = new boolean[1];
+        State st = states.computeIfAbsent(sessionId, k -> {
+            created[0] = true;
+            return new State();
+        });
+        if (created[0] && states.size() > maxSessions) {
+            int n = SessionStateBounds.evictOldest(states, State::lastUsedMs, s -> true, maxSessions);
+            if (n > 0) log.warn("[TRIGGER] max-sessions={} reached, evicted {} states", maxSessions, n);
+        }
+        TelemetryReading latest = window.get(0);
+        long now = System.currentTimeMillis();
+
+        synchronized (st) {
+            st.lastUsedMs = now;
+            st.readingsSince += newReadings;
+            boolean first = st.lastAtMs == 0;
+            if (!first && now - st.lastAtMs < cfg.minIntervalMs()) {
+                skipped.incrementAndGet();
+                return false;
+            }
+
+            boolean due = first || switch (cfg.mode()) {
+                case EVERY -> true;
+                case STRIDE -> st.readingsSince >= cfg.stride();
+                case TUMBLING -> st.readingsSince >= windows.windowSize();
+                case EVENT -> changed(st, latest, cfg);
+            };
+            if (!due && cfg.maxStalenessMs() > 0 && now - st.lastAtMs >= cfg.maxStalenessMs()) due = true;
+
+            if (!due) {
+                skipped.incrementAndGet();
+                return false;
+            }
+            st.readingsSince = 0;
+            st.lastAtMs = now;
+            st.lastDust = AiPointMapper.dustIndex(latest);
+            st.lastPower = latest.getPowerOutput();
+            st.lastMode = latest.getState() != null ? latest.getState().getMode() : null;
+        }
+        triggered.incrementAndGet();
+        return true;
+    }
+
+    private static Mode modeOr(String sessionId, Object v, Mode def) {
+        if (v == null) return def;
+        try {
+            return Mode.valueOf(String.valueOf(v).trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("[TRIGGER] session={} unknown meta.trigger.mode '{}', using {}", sessionId, v, def);
+            return def;
+        }
+    }
+
+    /** Evaluada de nuevo, una sesión desalojada se comporta como la primera ventana (predice). */
+    @Scheduled(fixedDelayString = "${telemetry.session-state.sweep-interval-ms:60000}")
+    void evictIdle() {
+        int n = SessionStateBounds.evictIdle(states, State::lastUsedMs, s -> true, System.currentTimeMillis() - idleTtlMs);
+        if (n > 0) log.info("[TRIGGER] evicted {} idle states", n);
+    }
+
+    @Override
+    public void onSessionStopped(String sessionId) {
+        states.remove(sessionId);
+        overrides.remove(sessionId);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("defaults", defaults);
+        m.put("sessionOverrides", overrides.size());
+        m.put("triggered", triggered.get());
+        m.put("skipped", skipped.get());
+        return m;
+    }
+
+    private static boolean changed(State st, TelemetryReading latest, Settings cfg) {
+        if (Math.abs(AiPointMapper.dustIndex(latest) - st.lastDust) > cfg.dustDelta()) return true;
+
+        Double power = latest.getPowerOutput();
+        if (power != null && st.lastPower != null) {
+            double base = Math.max(Math.abs(st.lastPower), 1e-9);
+            if (Math.abs(power - st.lastPower) / base > cfg.powerDeltaRel()) return true;
+        } else if (power != null || st.lastPower != null) {
+            return true;
+        }
+
+        String mode = latest.getState() != null ? latest.getState().getMode() : null;
+        return !Objects.equals(mode, st.lastMode);
+    }
+
+    private static int intOr(Object v, int d) { return v instanceof Number n ? n.intValue() : d; }
+    private static long longOr(Object v, long d) { return v instanceof Number n ? n.longValue() : d; }
+    private static double doubleOr(Object v, double d) { return v instanceof Number n ? n.doubleValue() : d; }
+
+    private static final class State {
+        private volatile long lastUsedMs = System.currentTimeMillis();
+        private int readingsSince;
+        private long lastAtMs;
+        private double lastDust;
+        private Double lastPower;
+        private String lastMode;
+
+        long lastUsedMs() { return lastUsedMs; }
+    }
+}
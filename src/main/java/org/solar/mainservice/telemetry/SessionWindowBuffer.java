@@ -0,0 +1,236 @@
+package org.solar.mainservice.telemetry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.ai.dto.AiWindowFeaturesDTO;
+import org.solar.mainservice.ai.mapper.AiPointMapper;
+import org.solar.mainservice.metrics.PipelineMetrics;
+import org.solar.mainservice.model.TelemetryReading;
+import org.solar.mainservice.repository.TelemetryRepository;
+import org.solar.mainservice.service.SessionLifecycleListener;
+import org.solar.mainservice.service.SessionStateBounds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Ventana deslizante en memoria por sesión con las últimas N lecturas.
+ * Evita re-consultar Mongo en cada lectura; solo se consulta en el arranque en frío.
+ * Además mantiene de forma incremental los features de la ventana (ver {@link #features}).
+ * Las ventanas sin lecturas durante idle-ttl se liberan aunque la sesión no se haya detenido.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SessionWindowBuffer implements SessionLifecycleListener {
+
+    private final TelemetryRepository repo;
+    private final PipelineMetrics metrics;
+
+    @Value("${telemetry.window.size:10}")
+    private int windowSize;
+
+    @Value("${telemetry.features.ewma-alpha:0.3}")
+    private double ewmaAlpha;
+
+    @Value("${telemetry.session-state.idle-ttl-ms:600000}")
+    private long idleTtlMs;
+
+    @Value("${telemetry.session-state.max-sessions:10000}")
+    private int maxSessions;
+
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+    public int windowSize() { return windowSize; }
+
+    /**
+     * Agrega la lectura de inmediato y resuelve la ventana vigente (DESC: índice 0 es el más reciente).
+     */
+    public Mono<List<TelemetryReading>> append(TelemetryReading reading) {
+        return appendAll(reading.getSessionId(), List.of(reading));
+    }
+
+    /** Igual que {@link #append} para varias lecturas (en orden de llegada) de una misma sesión. */
+    public Mono<List<TelemetryReading>> appendAll(String sessionId, List<TelemetryReading> readings) {
+        if (sessionId == null || sessionId.isBlank()) return Mono.empty();
+
+        boolean[] created = new boolean[1];
+        Ring ring = rings.computeIfAbsent(sessionId, k -> {
+            created[0] = true;
+            return new Ring(windowSize, ewmaAlpha);
+        });
+        if (created[0]) enforceBound();
+        readings.forEach(ring::add);
+        if (ring.isSeeded()) return Mono.just(ring.snapshotDesc());
+
+        // Arranque en frío: completamos con lo que ya está persistido; las lecturas que lleguen
+        // mientras tanto esperan la misma consulta (una sola por sesión)
+        return ring.seedOnce(() -> metrics.timeWindowQuery(
+                        repo.findBySessionIdOrderByTimestampDesc(sessionId, Limit.of(windowSize)).collectList()))
+                .onErrorResume(e -> {
+                    log.warn("[WIN] cold start query failed session={}: {}", sessionId, e.toString());
+                    return Mono.empty();
+                })
+                .then(Mono.fromSupplier(ring::snapshotDesc));
+    }
+
+    /**
+     * Features vigentes de la sesión, o null si no hay ventana en memoria.
+     * Pueden incluir lecturas llegadas después de la ventana en curso (siempre son las más frescas).
+     */
+    public AiWindowFeaturesDTO features(String sessionId) {
+        Ring ring = sessionId != null ? rings.get(sessionId) : null;
+        return ring != null ? ring.features() : null;
+    }
+
+    @Override
+    public void onSessionStopped(String sessionId) {
+        if (sessionId != null) rings.remove(sessionId);
+    }
+
+    public int activeSessions() { return rings.size(); }
+
+    @Scheduled(fixedDelayString = "${telemetry.session-state.sweep-interval-ms:60000}")
+    void evictIdle() {
+        int n = SessionStateBounds.evictIdle(rings, Ring::lastUsedMs, r -> true, System.currentTimeMillis() - idleTtlMs);
+        if (n > 0) log.info("[WIN] evicted {} idle session windows", n);
+    }
+
+    private void enforceBound() {
+        if (rings.size() <= maxSessions) return;
+        int n = SessionStateBounds.evictOldest(rings, Ring::lastUsedMs, r -> true, maxSessions);
+        if (n > 0) log.warn("[WIN] max-sessions={} reached, evicted {} windows", maxSessions, n);
+    }
+
+    /** Buffer circular acotado; los accesos se serializan por sesión. */
+    static final class Ring {
+        private final int capacity;
+        private final ArrayDeque<TelemetryReading> items;
+        private boolean seeded;
+        private Mono<Void> seeding;              // consulta de arranque en frío en curso (compartida)
+        private volatile long lastUsedMs = System.currentTimeMillis();
+
+        // Features incrementales, alineados con 'items' (misma capacidad, mismo orden)
+        private final SlidingSeries dust;
+        private final SlidingSeries power;
+        private final SlidingSeries gridDelta;
+        private Double lastPower;
+        private Double lastBefore;
+        private Double lastAfter;
+        private boolean gridSeen;
+
+        Ring(int capacity, double ewmaAlpha) {
+            this.capacity = capacity;
+            this.items = new ArrayDeque<>(capacity + 1);
+            this.dust = new SlidingSeries(capacity, ewmaAlpha);
+            this.power = new SlidingSeries(capacity, ewmaAlpha);
+            this.gridDelta = new SlidingSeries(capacity, ewmaAlpha);
+        }
+
+        long lastUsedMs() { return lastUsedMs; }
+
+        synchronized void add(TelemetryReading r) {
+            lastUsedMs = System.currentTimeMillis();
+            items.addLast(r);
+            if (items.size() > capacity) items.pollFirst();
+            accumulate(r);
+        }
+
+        private void accumulate(TelemetryReading r) {
+            dust.add(AiPointMapper.dustIndex(r));
+
+            // potencia faltante: se repite la última conocida para no meter ceros espurios
+            if (r.getPowerOutput() != null) lastPower = r.getPowerOutput();
+            power.add(lastPower != null ? lastPower : 0.0);
+
+            double delta = 0.0;
+            TelemetryReading.Grid g = r.getGrid();
+            if (g != null) {
+                if (g.getDustLocalBefore() != null) lastBefore = g.getDustLocalBefore();
+                if (g.getDustLocalAfter() != null) lastAfter = g.getDustLocalAfter();
+                if (g.getDeltaLocal() != null) {
+                    delta = g.getDeltaLocal();
+                    gridSeen = true;
+                } else if (g.getDustLocalBefore() != null && g.getDustLocalAfter() != null) {
+                    delta = g.getDustLocalBefore() - g.getDustLocalAfter();
+                    gridSeen = true;
+                }
+            }
+            gridDelta.add(delta);
+        }
+
+        synchronized AiWindowFeaturesDTO features() {
+            AiWindowFeaturesDTO.GridFeatures grid = null;
+            if (gridSeen) {
+                AiWindowFeaturesDTO.SeriesFeatures d = gridDelta.snapshot();
+                grid = new AiWindowFeaturesDTO.GridFeatures(lastBefore, lastAfter, d.getLast(), d.getMean());
+            }
+            return new AiWindowFeaturesDTO(dust.count(), dust.snapshot(), power.snapshot(), grid);
+        }
+
+        synchronized boolean isSeeded() { return seeded; }
+
+        /** La primera llamada arma la consulta; las demás reciben la misma. Si falla, la próxima lectura reintenta. */
+        synchronized Mono<Void> seedOnce(Supplier<Mono<List<TelemetryReading>>> query) {
+            if (seeding == null) {
+                seeding = query.get()
+                        .doOnNext(this::seed)
+                        .doOnError(e -> clearSeeding())
+                        .then()
+                        .cache();
+            }
+            return seeding;
+        }
+
+        private synchronized void clearSeeding() { seeding = null; }
+
+        /** Antepone el histórico (DESC) a lo ya recibido, sin duplicar lecturas. */
+        synchronized void seed(List<TelemetryReading> historyDesc) {
+            if (seeded) return;
+            seeded = true;
+
+            Set<String> known = new HashSet<>();
+            for (TelemetryReading r : items) {
+                if (r.getId() != null) known.add(r.getId());
+            }
+            List<TelemetryReading> older = new ArrayList<>();
+            for (TelemetryReading h : historyDesc) {
+                if (h.getId() == null || !known.contains(h.getId())) older.add(h);
+            }
+            older.sort(Comparator.comparing(TelemetryReading::getTimestamp,
+                    Comparator.nullsFirst(Comparator.naturalOrder())));
+
+            for (int i = older.size() - 1; i >= 0 && items.size() < capacity; i--) {
+                items.addFirst(older.get(i));
+            }
+
+            // el histórico quedó delante: se recalculan los features una única vez, en orden
+            dust.clear();
+            power.clear();
+            gridDelta.clear();
+            lastPower = lastBefore = lastAfter = null;
+            gridSeen = false;
+            items.forEach(this::accumulate);
+        }
+
+        synchronized List<TelemetryReading> snapshotDesc() {
+            List<TelemetryReading> out = new ArrayList<>(items.size());
+            Iterator<TelemetryReading> it = items.descendingIterator();
+            while (it.hasNext()) out.add(it.next());
+            return out;
+        }
+    }
+}
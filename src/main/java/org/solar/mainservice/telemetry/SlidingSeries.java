@@ -0,0 +1,122 @@
+package org.solar.mainservice.telemetry;
+
+import org.solar.mainservice.ai.dto.AiWindowFeaturesDTO;
+
+/**
+ * Estadísticos de una serie sobre las últimas N muestras, actualizados en O(1) amortizado por muestra:
+ * sumas deslizantes (media, varianza, pendiente por mínimos cuadrados), EWMA y min/max con colas monótonas.
+ * No es thread-safe; el {@code Ring} de la sesión serializa los accesos.
+ */
+final class SlidingSeries {
+
+    /** Cada tantas muestras se recalculan las sumas desde el buffer para no acumular error de redondeo. */
+    private static final int RESYNC_EVERY = 4096;
+
+    private final int capacity;
+    private final double alpha;
+    private final double[] buf;
+    private final LongDeque minQ;
+    private final LongDeque maxQ;
+
+    private long seq;      // número de muestras agregadas (la siguiente va en buf[seq % capacity])
+    private int count;
+    private double sum;
+    private double sumSq;
+    private double sxy;    // Σ x·y con x = posición en la ventana (0 = más vieja)
+    private double ewma;
+    private double last;
+
+    SlidingSeries(int capacity, double alpha) {
+        this.capacity = capacity;
+        this.alpha = alpha;
+        this.buf = new double[capacity];
+        this.minQ = new LongDeque(capacity);
+        this.maxQ = new LongDeque(capacity);
+    }
+
+    void add(double y) {
+        if (count == capacity) {
+            long oldest = seq - capacity;
+            double y0 = buf[slot(oldest)];
+            sum -= y0;
+            sumSq -= y0 * y0;
+            count--;
+            sxy -= sum; // las posiciones 1..n-1 pasan a 0..n-2
+            if (minQ.peekFirst() == oldest) minQ.pollFirst();
+            if (maxQ.peekFirst() == oldest) maxQ.pollFirst();
+        }
+
+        buf[slot(seq)] = y;
+        sxy += count * y;
+        sum += y;
+        sumSq += y * y;
+        count++;
+
+        while (!minQ.isEmpty() && buf[slot(minQ.peekLast())] >= y) minQ.pollLast();
+        minQ.addLast(seq);
+        while (!maxQ.isEmpty() && buf[slot(maxQ.peekLast())] <= y) maxQ.pollLast();
+        maxQ.addLast(seq);
+
+        ewma = seq == 0 ? y : alpha * y + (1 - alpha) * ewma;
+        last = y;
+        seq++;
+        if (seq % RESYNC_EVERY == 0) resync();
+    }
+
+    void clear() {
+        seq = 0;
+        count = 0;
+        sum = sumSq = sxy = ewma = last = 0;
+        minQ.clear();
+        maxQ.clear();
+    }
+
+    int count() { return count; }
+
+    double mean() { return count == 0 ? 0 : sum / count; }
+
+    AiWindowFeaturesDTO.SeriesFeatures snapshot() {
+        if (count == 0) return new AiWindowFeaturesDTO.SeriesFeatures();
+        double mean = sum / count;
+        double variance = Math.max(0, sumSq / count - mean * mean);
+        return new AiWindowFeaturesDTO.SeriesFeatures(last, mean, variance, ewma, slope(),
+                buf[slot(minQ.peekFirst())], buf[slot(maxQ.peekFirst())]);
+    }
+
+    private double slope() {
+        if (count < 2) return 0;
+        double n = count;
+        double sx = n * (n - 1) / 2;
+        double sxx = (n - 1) * n * (2 * n - 1) / 6;
+        return (n * sxy - sx * sum) / (n * sxx - sx * sx);
+    }
+
+    private void resync() {
+        sum = sumSq = sxy = 0;
+        for (int i = 0; i < count; i++) {
+            double y = buf[slot(seq - count + i)];
+            sum += y;
+            sumSq += y * y;
+            sxy += i * y;
+        }
+    }
+
+    private int slot(long s) { return (int) (s % capacity); }
+
+    /** Cola doble de longs sin boxing, acotada al tamaño de la ventana. */
+    private static final class LongDeque {
+        private final long[] items;
+        private int head;
+        private int size;
+
+        LongDeque(int capacity) { this.items = new long[capacity]; }
+
+        boolean isEmpty() { return size == 0; }
+        long peekFirst() { return size == 0 ? -1 : items[head]; }
+        long peekLast() { return items[(head + size - 1) % items.length]; }
+        void pollFirst() { head = (head + 1) % items.length; size--; }
+        void pollLast() { size--; }
+        void addLast(long v) { items[(head + size) % items.length] = v; size++; }
+        void clear() { head = 0; size = 0; }
+    }
+}
@@ -5,13 +5,19 @@ import lombok.extern.slf4j.Slf4j;
 import org.solar.mainservice.DecisionOrchestrator;
 import org.solar.mainservice.ai.client.AiServiceClient;
 import org.solar.mainservice.ai.dto.AiPredictResponse;
+import org.solar.mainservice.ai.mapper.AiPointMapper;
+import org.solar.mainservice.ai.predictor.Predictor;
+import org.solar.mainservice.control.ParamVector;
 import org.solar.mainservice.model.TelemetryReading;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Service
@@ -20,15 +26,29 @@ public class TelemetryWindowProcessor {
 
     private final AiServiceClient aiClient;
     private final DecisionOrchestrator orchestrator;
+    private final PredictionGate gate;
+    private final Predictor localPredictor;
+    private final AiPointMapper mapper;
+    private final SessionWindowBuffer windows;
 
-    public Mono<Void> processWindow(String sessionId, String panelId, List<TelemetryReading> last10, boolean applyControl) {
-        log.info("[WIN] session={} panel={} size={}", sessionId, panelId, last10.size());
+    /**
+     * remote = solo IA | fallback = IA y, si no responde, predictor local | local = solo predictor local.
+     * Con fallback/local las reglas locales también mandan comandos al robot (si apply-control): es opt-in.
+     */
+    @Value("${ai.predictor.mode:remote}")
+    private String predictorMode;
 
-        // Último frame (tu query viene DESC: índice 0 es el más reciente)
-        TelemetryReading latest = last10.get(0);
+    private final Map<String, AtomicLong> decisionsBySource = new ConcurrentHashMap<>();
+
+    public Mono<Void> processWindow(String sessionId, String panelId, List<TelemetryReading> window, boolean applyControl,
+                                    PredictionGate.Ticket ticket) {
+        log.info("[WIN] session={} panel={} size={}", sessionId, panelId, window.size());
+
+        // Último frame (la ventana viene DESC: índice 0 es el más reciente)
+        TelemetryReading latest = window.get(0);
 
         // 1) prevParams: snapshot de parámetros vigentes
-        Map<String, Object> prevParams = buildPrevParams(latest);
+        ParamVector prevParams = ParamVector.fromReading(latest.getParams());
 
         // 2) prevMode: modo actual del robot/panel si viene en la lectura
         String prevMode;
@@ -38,33 +58,46 @@ public class TelemetryWindowProcessor {
             prevMode = null;
         }
 
-        return aiClient.sendToAi(last10)
-                .doOnSubscribe(s -> log.info("[AI] request -> /predict session={} panel={}", sessionId, panelId))
-                .doOnNext(pr -> log.info("[AI] response <- {}", pr))
-                .switchIfEmpty(Mono.fromRunnable(() ->
-                        log.warn("[AI] EMPTY response (disabled/timeout/mapping). session={} panel={}", sessionId, panelId)))
+        return predict(window, sessionId, panelId)
+                .doOnNext(pr -> count(pr.getSource()))
+                .switchIfEmpty(Mono.fromRunnable(() -> count("none")))
+                .filter(pr -> gate.accept(ticket)) // descarta resultados viejos (latest-wins)
                 .flatMap((AiPredictResponse pr) ->
                         orchestrator.handlePrediction(sessionId, panelId, prevMode, prevParams, pr, applyControl))
                 .doOnTerminate(() -> log.info("[WIN] completed session={} panel={}", sessionId, panelId))
                 .onErrorResume(e -> { log.warn("[WIN] error {}", e.toString()); return Mono.empty(); });
     }
 
-    private Map<String, Object> buildPrevParams(TelemetryReading latest) {
-        Map<String, Object> prev = new HashMap<>();
-        if (latest.getParams() != null) {
-            var prm = latest.getParams();
-            putIfNotNull(prev, "brushRpm", prm.getBrushRpm());
-            putIfNotNull(prev, "waterPressure", prm.getWaterPressure());
-            putIfNotNull(prev, "waterFlow", prm.getMaxWaterPerMin());
-            putIfNotNull(prev, "detergentFlowRate", prm.getDetergentFlowRate());
-            putIfNotNull(prev, "robotSpeed", prm.getRobotSpeed());
-            putIfNotNull(prev, "passOverlap", prm.getPassOverlap());
-            putIfNotNull(prev, "dwellTime", prm.getDwellTime());
+    private Mono<AiPredictResponse> predict(List<TelemetryReading> window, String sessionId, String panelId) {
+        if ("local".equalsIgnoreCase(predictorMode)) {
+            return Mono.fromSupplier(() -> predictLocally(window));
+        }
+        Mono<AiPredictResponse> remote = aiClient.sendToAi(window, windows.features(sessionId))
+                .doOnSubscribe(s -> log.info("[AI] request -> /predict session={} panel={}", sessionId, panelId))
+                .doOnNext(pr -> log.info("[AI] response <- {}", pr));
+        if (!"fallback".equalsIgnoreCase(predictorMode)) {
+            return remote.switchIfEmpty(Mono.fromRunnable(() ->
+                    log.warn("[AI] EMPTY response (disabled/timeout/mapping). session={} panel={}", sessionId, panelId)));
         }
-        return prev;
+        return remote.switchIfEmpty(Mono.fromSupplier(() -> {
+            log.warn("[AI] EMPTY response, using {} predictor. session={} panel={}", localPredictor.source(), sessionId, panelId);
+            return predictLocally(window);
+        }));
+    }
+
+    private AiPredictResponse predictLocally(List<TelemetryReading> window) {
+        return localPredictor.predict(window.stream().map(mapper::toAiPoint).toList());
+    }
+
+    private void count(String source) {
+        decisionsBySource.computeIfAbsent(source != null ? source : "unknown", k -> new AtomicLong()).incrementAndGet();
     }
 
-    private void putIfNotNull(Map<String, Object> m, String k, Object v) {
-        if (v != null) m.put(k, v);
+    /** Predicciones por origen (ai, cache, local, none = sin predicción). */
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("mode", predictorMode);
+        decisionsBySource.forEach((k, v) -> m.put(k, v.get()));
+        return m;
     }
-}
\ No newline at end of file
+}
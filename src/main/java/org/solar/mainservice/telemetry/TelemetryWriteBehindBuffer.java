@@ -0,0 +1,218 @@
+package org.solar.mainservice.telemetry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.solar.mainservice.metrics.PipelineMetrics;
+import org.solar.mainservice.model.TelemetryReading;
+import org.solar.mainservice.repository.TelemetryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind de lecturas: agrupa los saves en micro-lotes (por tamaño o por tiempo) y los
+ * persiste con un insert en bloque. La cola es acotada: {@link #enqueue} rechaza si está llena y
+ * {@link #enqueueWhenReady} espera a que un flush libere hueco (frena al productor del stream).
+ * Si el insert falla entero (Mongo caído, red) se reintenta con backoff: las lecturas ya se confirmaron
+ * al cliente, así que solo se pierden si Mongo sigue sin responder tras el último intento.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TelemetryWriteBehindBuffer {
+
+    private final TelemetryRepository repo;
+    private final PipelineMetrics metrics;
+
+    @Value("${telemetry.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${telemetry.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${telemetry.write-behind.max-batch:500}")
+    private int maxBatch;
+
+    @Value("${telemetry.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${telemetry.write-behind.shutdown-timeout-ms:5000}")
+    private long shutdownTimeoutMs;
+
+    @Value("${telemetry.write-behind.retry.max-attempts:5}")
+    private int retryMaxAttempts;
+
+    @Value("${telemetry.write-behind.retry.backoff-ms:200}")
+    private long retryBackoffMs;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    private Sinks.Many<TelemetryReading> sink;
+    private CompletableFuture<Void> drained;
+    private volatile boolean closed;
+
+    // un hueco por lectura hasta que su flush termina; los que esperan se despiertan al liberar
+    private Semaphore slots;
+    private final Queue<Sinks.Empty<Void>> waiters = new ConcurrentLinkedQueue<>();
+
+    /** Cola llena: la lectura no se aceptó. */
+    public static final class BufferFullException extends IllegalStateException {
+        public BufferFullException() { super("write-behind buffer full"); }
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        slots = new Semaphore(capacity);
+        sink = Sinks.many().unicast().onBackpressureBuffer(new ArrayBlockingQueue<>(capacity));
+        drained = sink.asFlux()
+                .bufferTimeout(maxBatch, Duration.ofMillis(flushIntervalMs), true)
+                .concatMap(this::flush, 1)
+                .then()
+                .toFuture();
+        log.info("[WB] write-behind enabled capacity={} maxBatch={} flushIntervalMs={}", capacity, maxBatch, flushIntervalMs);
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Encola la lectura (asignándole id si no lo trae). Devuelve false si la cola está llena o cerrada.
+     */
+    public boolean enqueue(TelemetryReading reading) {
+        if (offer(reading)) return true;
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Como {@link #enqueue} pero, si la cola está llena, espera (sin bloquear hilos) a que un flush libere hueco.
+     * Solo falla si el buffer ya se cerró.
+     */
+    public Mono<Void> enqueueWhenReady(TelemetryReading reading) {
+        return Mono.defer(() -> {
+                    if (offer(reading)) return Mono.just(true);
+                    if (closed) return Mono.<Boolean>error(new IllegalStateException("write-behind buffer closed"));
+                    Sinks.Empty<Void> waiter = Sinks.empty();
+                    waiters.add(waiter);
+                    if (slots.availablePermits() > 0) wakeWaiters(); // se liberó hueco entre offer() y add()
+                    return waiter.asMono().then(Mono.<Boolean>empty());
+                })
+                .repeatWhenEmpty(woken -> woken) // al despertar se vuelve a intentar
+                .then();
+    }
+
+    /** Segundos sugeridos al cliente para reintentar cuando la cola está llena (Retry-After). */
+    public long retryAfterSeconds() {
+        return Math.max(1, Duration.ofMillis(flushIntervalMs).toSeconds());
+    }
+
+    private boolean offer(TelemetryReading reading) {
+        if (closed || !slots.tryAcquire()) return false;
+        if (reading.getId() == null) reading.setId(new ObjectId().toHexString());
+        pending.incrementAndGet();
+        Sinks.EmitResult res;
+        synchronized (this) {
+            res = sink.tryEmitNext(reading);
+        }
+        if (res.isSuccess()) return true;
+
+        pending.decrementAndGet();
+        slots.release();
+        return false;
+    }
+
+    /**
+     * Despierta a los que esperaban hasta ahora: cada uno reintenta su offer() y, si no alcanzó,
+     * vuelve al final de la cola (por eso no se drena hasta vaciarla).
+     */
+    private void wakeWaiters() {
+        for (int n = waiters.size(); n > 0; n--) {
+            Sinks.Empty<Void> w = waiters.poll();
+            if (w == null) return;
+            w.tryEmitEmpty();
+        }
+    }
+
+    public long queueDepth() { return pending.get(); }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("capacity", capacity);
+        m.put("queueDepth", pending.get());
+        m.put("flushed", flushed.get());
+        m.put("failed", failed.get());
+        m.put("rejected", rejected.get());
+        m.put("retries", retries.get());
+        m.put("waiting", waiters.size());
+        return m;
+    }
+
+    private Mono<Void> flush(List<TelemetryReading> batch) {
+        // los ids se asignan al encolar: reintentar un lote ya insertado en parte no duplica lecturas
+        return metrics.timeRepo(PipelineMetrics.RepoOp.INSERT_BATCH, repo.insertUnordered(batch))
+                .retryWhen(Retry.backoff(retryMaxAttempts, Duration.ofMillis(retryBackoffMs))
+                        .doBeforeRetry(sig -> {
+                            retries.incrementAndGet();
+                            log.warn("[WB] flush of {} readings failed (attempt {}), retrying: {}",
+                                    batch.size(), sig.totalRetries() + 1, sig.failure().toString());
+                        }))
+                .doOnNext(failedIdx -> {
+                    flushed.addAndGet(batch.size() - failedIdx.size());
+                    if (!failedIdx.isEmpty()) {
+                        failed.addAndGet(failedIdx.size());
+                        log.warn("[WB] flush partially failed: {} of {} readings rejected", failedIdx.size(), batch.size());
+                    }
+                })
+                .doOnError(e -> {
+                    failed.addAndGet(batch.size());
+                    log.error("[WB] flush of {} readings failed after {} retries, readings lost: {}",
+                            batch.size(), retryMaxAttempts, e.toString());
+                })
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(sig -> {
+                    pending.addAndGet(-batch.size());
+                    slots.release(batch.size());
+                    wakeWaiters();
+                })
+                .then();
+    }
+
+    /** Cierra la cola y espera a que se persista lo pendiente. */
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) return;
+        closed = true;
+        synchronized (this) {
+            sink.tryEmitComplete();
+        }
+        wakeWaiters(); // fallan con "closed" en vez de quedar colgados
+        try {
+            drained.get(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+            log.info("[WB] drained on shutdown flushed={} failed={}", flushed.get(), failed.get());
+        } catch (Exception e) {
+            log.warn("[WB] shutdown drain incomplete, {} readings pending: {}", pending.get(), e.toString());
+        }
+    }
+}
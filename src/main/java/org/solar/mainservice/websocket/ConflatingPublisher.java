@@ -0,0 +1,68 @@
+package org.solar.mainservice.websocket;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Conserva solo el último mensaje por clave (panel o sesión) y los publica a ritmo fijo.
+ * Lo que llega entre dos flushes reemplaza al anterior (conflated); claves nuevas por encima del tope se descartan (dropped).
+ */
+final class ConflatingPublisher {
+
+    private record Slot(String destination, Outbound message) {}
+
+    private final String family;
+    private final long intervalMs;
+    private final int maxKeys;
+
+    private final Map<String, Slot> latest = new ConcurrentHashMap<>();
+    private volatile long lastFlushMs;
+
+    private final AtomicLong offered = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong conflated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    ConflatingPublisher(String family, long intervalMs, int maxKeys) {
+        this.family = family;
+        this.intervalMs = intervalMs;
+        this.maxKeys = maxKeys;
+    }
+
+    String family() { return family; }
+
+    void offer(String key, String destination, Outbound message) {
+        offered.incrementAndGet();
+        if (!latest.containsKey(key) && latest.size() >= maxKeys) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (latest.put(key, new Slot(destination, message)) != null) conflated.incrementAndGet();
+    }
+
+    /** Publica lo pendiente si ya pasó el intervalo de la familia. */
+    void flushIfDue(long nowMs, BiConsumer<String, Outbound> sender) {
+        if (nowMs - lastFlushMs < intervalMs) return;
+        lastFlushMs = nowMs;
+        for (String key : latest.keySet()) {
+            Slot s = latest.remove(key);
+            if (s == null) continue;
+            sender.accept(s.destination(), s.message());
+            published.incrementAndGet();
+        }
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("intervalMs", intervalMs);
+        m.put("pendingKeys", latest.size());
+        m.put("offered", offered.get());
+        m.put("published", published.get());
+        m.put("conflated", conflated.get());
+        m.put("dropped", dropped.get());
+        return m;
+    }
+}
@@ -0,0 +1,169 @@
+package org.solar.mainservice.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Un cliente del transporte nativo: tópicos suscritos + cola de salida acotada.
+ * Un solo envío en curso por sesión (WebSocketSession no admite envíos concurrentes); si el cliente
+ * no da abasto, la cola aplica la política de desborde en vez de crecer.
+ */
+@Slf4j
+final class NativeWsClient {
+
+    enum Overflow { DROP_OLDEST, CONFLATE, DISCONNECT }
+
+    private record Frame(String topic, TextMessage message) {}
+
+    private final WebSocketSession session;
+    private final int capacity;
+    private final Overflow overflow;
+    private final Executor executor;
+
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+    // DROP_OLDEST / DISCONNECT: frames en orden. CONFLATE: tópicos en orden + último frame por tópico.
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    private final ArrayDeque<String> order = new ArrayDeque<>();
+    private final Map<String, TextMessage> latest = new HashMap<>();
+    private boolean draining;
+    private volatile boolean closed;
+
+    final AtomicLong sent = new AtomicLong();
+    final AtomicLong dropped = new AtomicLong();
+    final AtomicLong conflated = new AtomicLong();
+
+    NativeWsClient(WebSocketSession session, int capacity, Overflow overflow, Executor executor) {
+        this.session = session;
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.executor = executor;
+    }
+
+    String id() { return session.getId(); }
+
+    Set<String> topics() { return topics; }
+
+    /** @return false si el cliente está cerrado o se desconectó por cola llena */
+    boolean enqueue(String topic, TextMessage message) {
+        if (closed) return false;
+        boolean accepted;
+        boolean startDrain = false;
+        synchronized (this) {
+            accepted = offer(topic, message);
+            if (accepted) {
+                startDrain = !draining;
+                draining = true;
+            }
+        }
+        if (!accepted) {
+            disconnect("outbound queue full"); // fuera del lock
+            return false;
+        }
+        if (startDrain) executor.execute(this::drain);
+        return true;
+    }
+
+    int queued() {
+        synchronized (this) {
+            return overflow == Overflow.CONFLATE ? order.size() : frames.size();
+        }
+    }
+
+    void close() {
+        closed = true;
+        synchronized (this) {
+            frames.clear();
+            order.clear();
+            latest.clear();
+        }
+    }
+
+    /** @return false si la política es DISCONNECT y la cola está llena */
+    private boolean offer(String topic, TextMessage message) {
+        if (overflow == Overflow.CONFLATE) {
+            if (latest.put(topic, message) != null) {
+                conflated.incrementAndGet();
+                return true;
+            }
+            order.addLast(topic);
+            if (order.size() > capacity) {
+                latest.remove(order.pollFirst());
+                dropped.incrementAndGet();
+            }
+            return true;
+        }
+        if (frames.size() >= capacity) {
+            if (overflow == Overflow.DISCONNECT) return false;
+            frames.pollFirst();
+            dropped.incrementAndGet();
+        }
+        frames.addLast(new Frame(topic, message));
+        return true;
+    }
+
+    private TextMessage poll() {
+        if (overflow == Overflow.CONFLATE) {
+            String topic = order.pollFirst();
+            return topic != null ? latest.remove(topic) : null;
+        }
+        Frame f = frames.pollFirst();
+        return f != null ? f.message() : null;
+    }
+
+    private void drain() {
+        boolean released = false;
+        try {
+            while (true) {
+                TextMessage next;
+                synchronized (this) {
+                    next = closed ? null : poll();
+                    if (next == null) {
+                        draining = false;
+                        released = true;
+                        return;
+                    }
+                }
+                try {
+                    session.sendMessage(next);
+                    sent.incrementAndGet();
+                } catch (IOException | IllegalStateException e) {
+                    disconnect("send failed: " + e);
+                    return;
+                }
+            }
+        } finally {
+            // cualquier salida (incluida una excepción inesperada) libera el drenaje; si no, el cliente queda mudo
+            if (!released) {
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+    }
+
+    /** Descarta la cola ya; el cierre de la sesión (puede bloquear) va al executor de envío, no al hilo que publica. */
+    private void disconnect(String reason) {
+        if (closed) return;
+        close();
+        log.warn("[WS-NATIVE] closing client={} ({})", id(), reason);
+        executor.execute(() -> {
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                log.debug("[WS-NATIVE] close failed client={}: {}", id(), e.toString());
+            }
+        });
+    }
+}
@@ -0,0 +1,212 @@
+package org.solar.mainservice.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.standard.StandardWebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Transporte WebSocket nativo (sin STOMP) en /ws-native, activo con ws.native.enabled.
+ * Protocolo: el cliente manda {"action":"subscribe"|"unsubscribe"|"resync","topic":"/topic/..."} y recibe
+ * {"topic":"...","payload":{...}}. El payload es el mismo JSON ya codificado para STOMP (no se re-serializa)
+ * y el frame de cada tópico se arma una sola vez para todos sus suscriptores.
+ * Suscribirse a un tópico …/delta (o mandar resync tras un salto de seq) fuerza un snapshot en ese stream,
+ * igual que en STOMP: las políticas drop_oldest/conflate pueden descartar deltas.
+ * Cada cliente tiene una cola de salida acotada con política de desborde (drop_oldest | conflate | disconnect).
+ * Los envíos (bloqueantes en servlet) corren en un pool propio y con tope de tiempo: un cliente trabado
+ * ocupa a lo sumo un hilo de ese pool, nunca los compartidos del resto del pipeline.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NativeWsHub extends TextWebSocketHandler {
+
+    private static final byte[] FRAME_PREFIX = "{\"topic\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FRAME_MIDDLE = "\",\"payload\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FRAME_SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final TelemetryDeltaEncoder deltas;
+
+    @Value("${ws.native.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ws.native.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${ws.native.overflow:drop_oldest}")
+    private String overflow;
+
+    @Value("${ws.native.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${ws.native.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    private NativeWsClient.Overflow overflowPolicy;
+
+    private Scheduler senderScheduler;
+    private Executor sender;
+
+    private final Map<String, NativeWsClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, Set<NativeWsClient>> subscribers = new ConcurrentHashMap<>();
+
+    /** Valida ws.native.overflow al arrancar (solo con el transporte activo): no debe esperar a la primera conexión. */
+    @PostConstruct
+    void init() {
+        if (!enabled) return;
+        try {
+            overflowPolicy = NativeWsClient.Overflow.valueOf(overflow.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("ws.native.overflow='" + overflow + "' is invalid, expected one of "
+                    + Arrays.toString(NativeWsClient.Overflow.values()).toLowerCase(Locale.ROOT), e);
+        }
+        senderScheduler = Schedulers.newBoundedElastic(senderThreads, Integer.MAX_VALUE, "ws-native-send", 60, true);
+        sender = senderScheduler::schedule;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (senderScheduler != null) senderScheduler.dispose();
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * Publica a los suscriptores del tópico; sin suscriptores no codifica nada.
+     * @return true si el frame se encoló para al menos un cliente
+     */
+    boolean publish(String topic, Outbound msg, Function<Object, Message<?>> encoder) {
+        Set<NativeWsClient> subs = subscribers.get(topic);
+        if (subs == null || subs.isEmpty()) return false;
+
+        Message<?> encoded = msg.message(encoder);
+        if (encoded == null || !(encoded.getPayload() instanceof byte[] json)) return false;
+        TextMessage frame = frame(topic, json);
+        boolean enqueued = false;
+        for (NativeWsClient c : subs) enqueued |= c.enqueue(topic, frame);
+        return enqueued;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        limitSendTime(session);
+        clients.put(session.getId(), new NativeWsClient(session, queueCapacity, overflowPolicy, sender));
+        log.info("[WS-NATIVE] client connected id={} policy={}", session.getId(), overflowPolicy);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        NativeWsClient client = clients.get(session.getId());
+        if (client == null) return;
+        try {
+            JsonNode req = objectMapper.readTree(message.getPayload());
+            String action = req.path("action").asText("");
+            String topic = req.path("topic").asText("");
+            if (!topic.startsWith("/topic/")) return;
+            if ("subscribe".equals(action)) {
+                client.topics().add(topic);
+                subscribers.computeIfAbsent(topic, t -> ConcurrentHashMap.newKeySet()).add(client);
+                requestSnapshot(topic);
+            } else if ("unsubscribe".equals(action)) {
+                client.topics().remove(topic);
+                removeSubscriber(topic, client);
+            } else if ("resync".equals(action)) {
+                log.debug("[WS-NATIVE] resync requested by {} for {}", session.getId(), topic);
+                requestSnapshot(topic);
+            }
+        } catch (Exception e) {
+            log.debug("[WS-NATIVE] ignoring malformed message from {}: {}", session.getId(), e.toString());
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        NativeWsClient client = clients.remove(session.getId());
+        if (client == null) return;
+        client.close();
+        client.topics().forEach(t -> removeSubscriber(t, client));
+        log.info("[WS-NATIVE] client disconnected id={} status={}", session.getId(), status);
+    }
+
+    public Map<String, Object> stats() {
+        long sent = 0, dropped = 0, conflated = 0, queued = 0;
+        for (NativeWsClient c : clients.values()) {
+            sent += c.sent.get();
+            dropped += c.dropped.get();
+            conflated += c.conflated.get();
+            queued += c.queued();
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("overflow", overflowPolicy != null ? overflowPolicy.name().toLowerCase(Locale.ROOT) : overflow);
+        m.put("queueCapacity", queueCapacity);
+        m.put("clients", clients.size());
+        m.put("topics", subscribers.size());
+        m.put("queued", queued);
+        m.put("sent", sent);
+        m.put("dropped", dropped);
+        m.put("conflated", conflated);
+        return m;
+    }
+
+    /** Tópicos delta: el próximo mensaje del stream sale completo. */
+    private void requestSnapshot(String topic) {
+        if (!deltas.isEnabled()) return;
+        String key = TelemetryDeltaEncoder.keyForDestination(topic);
+        if (key != null) deltas.requestSnapshot(key);
+    }
+
+    private void removeSubscriber(String topic, NativeWsClient client) {
+        subscribers.computeIfPresent(topic, (t, subs) -> {
+            subs.remove(client);
+            return subs.isEmpty() ? null : subs;
+        });
+    }
+
+    /** Tope del envío bloqueante (Tomcat; en otros contenedores la propiedad se ignora). */
+    private void limitSendTime(WebSocketSession session) {
+        if (session instanceof StandardWebSocketSession std && std.getNativeSession() != null) {
+            std.getNativeSession().getUserProperties().put("org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT", sendTimeoutMs);
+        }
+    }
+
+    /** {"topic":"<topic>","payload":<json>} sin volver a serializar el payload. */
+    private static TextMessage frame(String topic, byte[] json) {
+        byte[] t = escape(topic).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(FRAME_PREFIX.length + t.length + FRAME_MIDDLE.length + json.length + 1);
+        out.writeBytes(FRAME_PREFIX);
+        out.writeBytes(t);
+        out.writeBytes(FRAME_MIDDLE);
+        out.writeBytes(json);
+        out.writeBytes(FRAME_SUFFIX);
+        return new TextMessage(out.toByteArray());
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,35 @@
+package org.solar.mainservice.websocket;
+
+import org.springframework.messaging.Message;
+
+import java.util.function.Function;
+
+/**
+ * Payload saliente con su mensaje ya codificado, calculado una sola vez (al primer envío)
+ * y compartido por todos los destinos/transportes que lo publiquen.
+ */
+final class Outbound {
+
+    private final Object payload;
+    private volatile Message<?> encoded;
+    private volatile boolean encodeAttempted;
+
+    Outbound(Object payload) {
+        this.payload = payload;
+    }
+
+    Object payload() { return payload; }
+
+    /** null si el converter no soporta el payload (se envía con convertAndSend). */
+    Message<?> message(Function<Object, Message<?>> encoder) {
+        if (!encodeAttempted) {
+            synchronized (this) {
+                if (!encodeAttempted) {
+                    encoded = encoder.apply(payload);
+                    encodeAttempted = true;
+                }
+            }
+        }
+        return encoded;
+    }
+}
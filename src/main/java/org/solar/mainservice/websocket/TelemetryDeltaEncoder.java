@@ -0,0 +1,186 @@
+package org.solar.mainservice.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.service.SessionLifecycleListener;
+import org.solar.mainservice.service.SessionStateBounds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Estado por stream delta (clave "session:{id}" o "panel:{id}"): última lectura enviada, secuencia
+ * y cuándo toca el próximo snapshot completo (periódico, al suscribirse alguien o al pedir resync).
+ */
+@Slf4j
+@Component
+public class TelemetryDeltaEncoder implements SessionLifecycleListener {
+
+    @Value("${ws.delta.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ws.delta.snapshot-every:100}")
+    private int snapshotEvery;
+
+    @Value("${ws.delta.snapshot-interval-ms:10000}")
+    private long snapshotIntervalMs;
+
+    @Value("${telemetry.session-state.idle-ttl-ms:600000}")
+    private long idleTtlMs;
+
+    @Value("${telemetry.session-state.max-sessions:10000}")
+    private int maxStreams;
+
+    private final Map<String, Stream> streams = new ConcurrentHashMap<>();
+
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong deltas = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+
+    private static final class Stream {
+        volatile long lastUsedMs = System.currentTimeMillis();
+        long seq;
+        WebSocketNotifier.TelemetryWs last;
+        int sinceSnapshot;
+        long lastSnapshotMs;
+        boolean forceSnapshot;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    public static String sessionKey(String sessionId) { return "session:" + sessionId; }
+
+    public static String panelKey(String panelId) { return "panel:" + panelId; }
+
+    /** Clave del stream para un destino delta, o null si el destino no es delta. */
+    public static String keyForDestination(String destination) {
+        if (destination == null || !destination.endsWith("/delta")) return null;
+        String[] parts = destination.split("/");
+        // /topic/telemetry/{sessionId}/delta
+        if (parts.length == 5 && "telemetry".equals(parts[2])) return sessionKey(parts[3]);
+        // /topic/panels/{panelId}/telemetry/delta
+        if (parts.length == 6 && "panels".equals(parts[2]) && "telemetry".equals(parts[4])) return panelKey(parts[3]);
+        return null;
+    }
+
+    /**
+     * Arma el siguiente mensaje del stream (snapshot si corresponde, si no solo los campos que cambiaron)
+     * y lo publica sin soltar el lock del stream: dos lecturas concurrentes de la misma sesión no pueden
+     * salir con las seq invertidas.
+     */
+    void emit(String key, WebSocketNotifier.TelemetryWs current, Consumer<TelemetryDeltaWs> publisher) {
+        boolean[] created = new boolean[1];
+        Stream st = streams.computeIfAbsent(key, k -> {
+            created[0] = true;
+            return new Stream();
+        });
+        if (created[0] && streams.size() > maxStreams) {
+            int n = SessionStateBounds.evictOldest(streams, s -> s.lastUsedMs, s -> true, maxStreams);
+            if (n > 0) log.warn("[WS] delta max-streams={} reached, evicted {}", maxStreams, n);
+        }
+        synchronized (st) {
+            st.lastUsedMs = System.currentTimeMillis();
+            publisher.accept(next(st, current));
+        }
+    }
+
+    /** Un stream desalojado vuelve a empezar con un snapshot (seq nueva) en su próximo mensaje. */
+    @Scheduled(fixedDelayString = "${telemetry.session-state.sweep-interval-ms:60000}")
+    void evictIdle() {
+        int n = SessionStateBounds.evictIdle(streams, s -> s.lastUsedMs, s -> true, System.currentTimeMillis() - idleTtlMs);
+        if (n > 0) log.info("[WS] evicted {} idle delta streams", n);
+    }
+
+    /** Con el lock de {@code st} tomado. */
+    private TelemetryDeltaWs next(Stream st, WebSocketNotifier.TelemetryWs current) {
+        long now = System.currentTimeMillis();
+        long seq = ++st.seq;
+        WebSocketNotifier.TelemetryWs prev = st.last;
+        st.last = current;
+
+        boolean snapshot = prev == null || st.forceSnapshot
+                || st.sinceSnapshot >= snapshotEvery
+                || now - st.lastSnapshotMs >= snapshotIntervalMs;
+        if (snapshot) {
+            st.forceSnapshot = false;
+            st.sinceSnapshot = 0;
+            st.lastSnapshotMs = now;
+            snapshots.incrementAndGet();
+            return new TelemetryDeltaWs(TelemetryDeltaWs.SNAPSHOT, seq, current.sessionId(), current.panelId(), current, null);
+        }
+        st.sinceSnapshot++;
+        deltas.incrementAndGet();
+        return new TelemetryDeltaWs(TelemetryDeltaWs.DELTA, seq, current.sessionId(), current.panelId(), null, diff(prev, current));
+    }
+
+    /** El próximo mensaje del stream sale completo (nueva suscripción o cliente que detectó un salto). */
+    public void requestSnapshot(String key) {
+        Stream st = streams.get(key);
+        if (st == null) return;
+        synchronized (st) {
+            st.forceSnapshot = true;
+        }
+        resyncs.incrementAndGet();
+    }
+
+    @Override
+    public void onSessionStopped(String sessionId) {
+        if (sessionId != null) streams.remove(sessionKey(sessionId));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("streams", streams.size());
+        m.put("snapshots", snapshots.get());
+        m.put("deltas", deltas.get());
+        m.put("resyncRequests", resyncs.get());
+        return m;
+    }
+
+    static Map<String, Object> diff(WebSocketNotifier.TelemetryWs prev, WebSocketNotifier.TelemetryWs cur) {
+        Map<String, Object> c = new LinkedHashMap<>();
+        put(c, "timestamp", prev.timestamp(), cur.timestamp());
+        put(c, "temperature", prev.temperature(), cur.temperature());
+        put(c, "humidity", prev.humidity(), cur.humidity());
+        put(c, "dustLevel", prev.dustLevel(), cur.dustLevel());
+        put(c, "vibration", prev.vibration(), cur.vibration());
+        put(c, "microFractureRisk", prev.microFractureRisk(), cur.microFractureRisk());
+        put(c, "powerOutput", prev.powerOutput(), cur.powerOutput());
+        put(c, "location", prev.location(), cur.location());
+        put(c, "state", prev.state(), cur.state());
+
+        var pa = prev.params();
+        var pb = cur.params();
+        if (pa == null || pb == null) {
+            put(c, "params", pa, pb);
+        } else if (!pa.equals(pb)) {
+            Map<String, Object> p = new LinkedHashMap<>();
+            put(p, "robotSpeed", pa.robotSpeed(), pb.robotSpeed());
+            put(p, "brushRpm", pa.brushRpm(), pb.brushRpm());
+            put(p, "waterPressure", pa.waterPressure(), pb.waterPressure());
+            put(p, "detergentFlowRate", pa.detergentFlowRate(), pb.detergentFlowRate());
+            put(p, "vacuumPower", pa.vacuumPower(), pb.vacuumPower());
+            put(p, "turnRadius", pa.turnRadius(), pb.turnRadius());
+            put(p, "passOverlap", pa.passOverlap(), pb.passOverlap());
+            put(p, "pathSpacing", pa.pathSpacing(), pb.pathSpacing());
+            put(p, "squeegeePressure", pa.squeegeePressure(), pb.squeegeePressure());
+            put(p, "dwellTime", pa.dwellTime(), pb.dwellTime());
+            put(p, "rpmRampRate", pa.rpmRampRate(), pb.rpmRampRate());
+            put(p, "maxWaterPerMin", pa.maxWaterPerMin(), pb.maxWaterPerMin());
+            put(p, "maxEnergyPerMin", pa.maxEnergyPerMin(), pb.maxEnergyPerMin());
+            c.put("params", p);
+        }
+        return c;
+    }
+
+    private static void put(Map<String, Object> changes, String field, Object before, Object after) {
+        if (!Objects.equals(before, after)) changes.put(field, after);
+    }
+}
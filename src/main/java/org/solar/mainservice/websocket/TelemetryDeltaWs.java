@@ -0,0 +1,25 @@
+package org.solar.mainservice.websocket;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+/**
+ * Mensaje de los tópicos delta (…/telemetry/delta).
+ * kind = "snapshot": {@code snapshot} trae la lectura completa y reinicia la base del cliente.
+ * kind = "delta": {@code changes} trae solo los campos distintos a la lectura anterior (null = el campo se vació;
+ * params trae solo los sub-campos que cambiaron). Si el cliente ve un salto en {@code seq} debe pedir
+ * resync en /app/telemetry/resync.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TelemetryDeltaWs(
+        String kind,
+        long seq,
+        String sessionId,
+        String panelId,
+        WebSocketNotifier.TelemetryWs snapshot,
+        Map<String, Object> changes
+) {
+    static final String SNAPSHOT = "snapshot";
+    static final String DELTA = "delta";
+}
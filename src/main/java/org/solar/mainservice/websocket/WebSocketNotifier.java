@@ -1,35 +1,145 @@
 package org.solar.mainservice.websocket;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.solar.mainservice.metrics.PipelineMetrics;
 import org.solar.mainservice.model.PredictionResult;
 import org.solar.mainservice.model.TelemetryReading;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class WebSocketNotifier {
 
+    private static final MessageHeaders NO_HEADERS = new MessageHeaders(Map.of());
+
     private final SimpMessagingTemplate messagingTemplate;
+    private final TelemetryDeltaEncoder deltas;
+    private final NativeWsHub nativeHub;
+    private final PipelineMetrics metrics;
+
+    // Conflación de telemetría por familia de tópicos (0 = sin conflación, cada lectura sale al instante)
+    @Value("${ws.conflation.enabled:true}")
+    private boolean conflationEnabled;
+
+    @Value("${ws.conflation.session-ms:0}")
+    private long sessionIntervalMs;   // /topic/telemetry/{sessionId}
+
+    @Value("${ws.conflation.global-ms:500}")
+    private long globalIntervalMs;    // /topic/telemetry
+
+    @Value("${ws.conflation.panel-ms:250}")
+    private long panelIntervalMs;     // /topic/panels/{panelId}/telemetry
+
+    @Value("${ws.conflation.max-keys:10000}")
+    private int conflationMaxKeys;
+
+    private final Map<String, ConflatingPublisher> families = new LinkedHashMap<>();
+
+    @PostConstruct
+    void initConflation() {
+        if (!conflationEnabled) return;
+        addFamily("session", sessionIntervalMs);
+        addFamily("global", globalIntervalMs);
+        addFamily("panel", panelIntervalMs);
+        log.info("[WS] telemetry conflation families={}", families.keySet());
+    }
+
+    private void addFamily(String family, long intervalMs) {
+        if (intervalMs > 0) families.put(family, new ConflatingPublisher(family, intervalMs, conflationMaxKeys));
+    }
 
     public void sendTelemetry(TelemetryReading reading) {
-        String dest = "/topic/telemetry/" + reading.getSessionId();
-        var payload = TelemetryWs.from(reading);
-        messagingTemplate.convertAndSend(dest, payload);
+        long start = System.nanoTime();
+        TelemetryWs payload = TelemetryWs.from(reading);
+        Outbound msg = new Outbound(payload);
+        String sessionId = reading.getSessionId();
+        String panelId = reading.getPanelId();
+        boolean hasPanel = panelId != null && !panelId.isBlank();
+
+        route("session", sessionId, "/topic/telemetry/" + sessionId, msg);
+        route("global", hasPanel ? panelId : sessionId, "/topic/telemetry", msg);
+        if (hasPanel) route("panel", panelId, "/topic/panels/" + panelId + "/telemetry", msg);
 
-        messagingTemplate.convertAndSend("/topic/telemetry", payload);
-        if (reading.getPanelId() != null && !reading.getPanelId().isBlank()) {
-            messagingTemplate.convertAndSend("/topic/panels/" + reading.getPanelId() + "/telemetry", payload);
+        // Streams delta (opt-in): sin conflación, para que la secuencia no tenga huecos
+        if (deltas.isEnabled()) {
+            deltas.emit(TelemetryDeltaEncoder.sessionKey(sessionId), payload,
+                    d -> publish(d, "/topic/telemetry/" + sessionId + "/delta"));
+            if (hasPanel) {
+                deltas.emit(TelemetryDeltaEncoder.panelKey(panelId), payload,
+                        d -> publish(d, "/topic/panels/" + panelId + "/telemetry/delta"));
+            }
         }
+        metrics.wsTelemetry(start);
     }
 
+    /** Eventos de runtime/control (ai_decision, etc.): nunca se conflan. */
     public void sendRuntimeEvent(String type, Object evt, String sessionId, String panelId) {
-        messagingTemplate.convertAndSend("/topic/" + type, evt);
-        if (sessionId != null && !sessionId.isBlank()) {
-            messagingTemplate.convertAndSend("/topic/sessions/" + sessionId + "/" + type, evt);
+        long start = System.nanoTime();
+        publish(evt,
+                "/topic/" + type,
+                sessionId != null && !sessionId.isBlank() ? "/topic/sessions/" + sessionId + "/" + type : null,
+                panelId != null && !panelId.isBlank() ? "/topic/panels/" + panelId + "/" + type : null);
+        metrics.wsEvent(type, start);
+    }
+
+    @Scheduled(fixedDelayString = "${ws.conflation.tick-ms:50}")
+    public void flushConflated() {
+        long now = System.currentTimeMillis();
+        families.values().forEach(c -> c.flushIfDue(now, this::send));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("conflationEnabled", conflationEnabled);
+        families.forEach((name, c) -> m.put(name, c.stats()));
+        return m;
+    }
+
+    private void route(String family, String key, String destination, Outbound msg) {
+        ConflatingPublisher c = families.get(family);
+        if (c == null || key == null) send(destination, msg);
+        else c.offer(key, destination, msg);
+    }
+
+    /**
+     * Serializa el payload una sola vez y reutiliza el mismo mensaje (mismos bytes) en todos los destinos;
+     * el template solo le agrega el header de destino. Los destinos null se ignoran.
+     */
+    void publish(Object payload, String... destinations) {
+        Outbound msg = new Outbound(payload);
+        for (String dest : destinations) {
+            if (dest != null) send(dest, msg);
+        }
+    }
+
+    private void send(String destination, Outbound msg) {
+        Message<?> encoded = msg.message(this::encode);
+        if (encoded != null) messagingTemplate.send(destination, encoded);
+        else messagingTemplate.convertAndSend(destination, msg.payload());
+        metrics.wsMessage(false);
+        if (nativeHub.isEnabled() && nativeHub.publish(destination, msg, this::encode)) {
+            metrics.wsMessage(true);
         }
-        if (panelId != null && !panelId.isBlank()) {
-            messagingTemplate.convertAndSend("/topic/panels/" + panelId + "/" + type, evt);
+    }
+
+    /** Mensaje ya convertido con el converter del broker (JSON), o null si ninguno lo soporta. */
+    Message<?> encode(Object payload) {
+        try {
+            return messagingTemplate.getMessageConverter().toMessage(payload, NO_HEADERS);
+        } catch (RuntimeException e) {
+            log.warn("[WS] could not pre-encode {}: {}", payload.getClass().getSimpleName(), e.toString());
+            return null;
         }
     }
 